@@ -0,0 +1,69 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// parallel flatMap over a Zipf skewed List<List<String>> vs BalancedSpliterators.flatten
+// ./gradlew jmh -PjmhInclude=BalancedSpliteratorsBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalancedSpliteratorsBenchmark {
+
+    @Param({"1.0", "1.5"})
+    public double skew;
+
+    private List<List<String>> nested;
+
+    @Setup
+    public void setUp() {
+        int lists = 1_000;
+        int total = 2_000_000;
+        double norm = 0;
+        for (int rank = 1; rank <= lists; rank++) {
+            norm += 1 / Math.pow(rank, skew);
+        }
+        nested = new ArrayList<>(lists);
+        for (int rank = 1; rank <= lists; rank++) {
+            int size = Math.max(1, (int) (total / Math.pow(rank, skew) / norm));
+            List<String> inner = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                inner.add(rank + "-" + i);
+            }
+            nested.add(inner);
+        }
+        Collections.shuffle(nested, new Random(7));
+    }
+
+    private static long work(String value) {
+        long hash = 0;
+        for (int i = 0; i < 50; i++) {
+            hash = hash * 31 + value.hashCode() + i;
+        }
+        return hash & 1;
+    }
+
+    @Benchmark
+    public long sequentialFlatMap() {
+        return nested.stream().flatMap(Collection::stream).mapToLong(BalancedSpliteratorsBenchmark::work).sum();
+    }
+
+    @Benchmark
+    public long parallelFlatMap() {
+        return nested.parallelStream().flatMap(Collection::stream).mapToLong(BalancedSpliteratorsBenchmark::work).sum();
+    }
+
+    @Benchmark
+    public long parallelFlatten() {
+        return BalancedSpliterators.flatStream(nested, true).mapToLong(BalancedSpliteratorsBenchmark::work).sum();
+    }
+}
@@ -0,0 +1,91 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// toList / toSet / Collector.of(LinkedList) vs FastCollectors, 100M needs a large heap
+// ./gradlew jmh -PjmhInclude=CollectorBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+@State(Scope.Benchmark)
+public class CollectorBenchmark {
+
+    @Param({"1000000", "10000000", "100000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private List<Integer> numbers;
+
+    @Setup
+    public void setUp() {
+        numbers = IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    private Stream<Integer> stream() {
+        return parallel ? numbers.parallelStream() : numbers.stream();
+    }
+
+    @Benchmark
+    public List<Integer> toList() {
+        return stream().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Set<Integer> toSet() {
+        return stream().collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public LinkedList<Integer> toLinkedList() {
+        Collector<Integer, ?, LinkedList<Integer>> toLinkedList =
+                Collector.of(LinkedList::new, LinkedList::add,
+                        (first, second) -> {
+                            first.addAll(second);
+                            return first;
+                        });
+        return stream().collect(toLinkedList);
+    }
+
+    @Benchmark
+    public ChunkedList<Integer> toChunkedList() {
+        return stream().collect(FastCollectors.toChunkedList());
+    }
+
+    @Benchmark
+    public List<Integer> toSizedList() {
+        return FastCollectors.toSizedList(stream().map(i -> i));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> groupingBy() {
+        return stream().collect(Collectors.groupingBy(i -> i & 1023));
+    }
+
+    @Benchmark
+    public ConcurrentMap<Integer, List<Integer>> jdkGroupingByConcurrent() {
+        return stream().collect(Collectors.groupingByConcurrent(i -> i & 1023));
+    }
+
+    @Benchmark
+    public ConcurrentMap<Integer, Collection<Integer>> groupingByConcurrent() {
+        return stream().collect(FastCollectors.groupingByConcurrent(i -> i & 1023));
+    }
+
+    @Benchmark
+    public ConcurrentMap<Integer, LongAdder> countingByConcurrent() {
+        return stream().collect(FastCollectors.countingByConcurrent(i -> i & 1023));
+    }
+}
@@ -0,0 +1,101 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// List<String> of repeated names (one String per row, as parsed from a feed) vs EncodedColumn.
+// Setup prints the retained heap of both columns, the 50M row case needs the larger heap below.
+// ./gradlew jmh -PjmhInclude=DictionaryBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Benchmark)
+public class DictionaryBenchmark {
+
+    @Param({"1000000", "50000000"})
+    public int rows;
+
+    @Param({"10000"})
+    public int distinct;
+
+    private List<String> strings;
+    private EncodedColumn column;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long before = usedHeap();
+        strings = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            strings.add(new String("product-" + random.nextInt(distinct)));
+        }
+        long stringsHeap = usedHeap() - before;
+
+        before = usedHeap();
+        column = new EncodedColumn(new StringDictionary(), rows);
+        random = new Random(42);
+        for (int i = 0; i < rows; i++) {
+            column.add("product-" + random.nextInt(distinct));
+        }
+        long columnHeap = usedHeap() - before;
+        System.out.printf("%nretained heap, %d rows / %d names: List<String> %,d bytes, EncodedColumn %,d bytes%n",
+                rows, distinct, stringsHeap, columnHeap);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    public Map<String, Long> streamGroupingBy() {
+        return strings.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<String, Long> encodedGroupingBy() {
+        return column.counting();
+    }
+
+    @Benchmark
+    public List<String> streamDistinct() {
+        return strings.stream().distinct().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> encodedDistinct() {
+        return column.distinct();
+    }
+
+    @Benchmark
+    public long streamFilterContains() {
+        return strings.stream().filter(name -> name.contains("99")).count();
+    }
+
+    @Benchmark
+    public int encodedFilterContains() {
+        return column.filter(name -> name.contains("99")).size();
+    }
+
+    @Benchmark
+    public int streamJoining() {
+        return strings.stream().collect(Collectors.joining(", ", "<", ">")).length();
+    }
+
+    @Benchmark
+    public int encodedJoining() {
+        return column.joining(", ", "<", ">").length();
+    }
+}
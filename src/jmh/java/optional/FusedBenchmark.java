@@ -0,0 +1,97 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+// filter/map/mapToInt/sum as a Stream vs a Fused pipeline.
+// "polluted" runs a dozen other lambda shapes through the same stream stages during setup,
+// so the Sink call sites inside the stream library are megamorphic like in a real application.
+// ./gradlew jmh -PjmhInclude=FusedBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FusedBenchmark {
+
+    @Param({"clean", "polluted"})
+    public String profile;
+
+    private List<String> words;
+    private int[] values;
+    private ToIntFunction<List<String>> fusedWords;
+    private ToIntFunction<int[]> fusedInts;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        Random random = new Random(42);
+        words = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            words.add("word-" + random.nextInt(1_000_000));
+        }
+        values = random.ints(100_000, 0, 1_000).toArray();
+
+        if (profile.equals("polluted")) {
+            pollute(blackhole);
+        }
+        fusedWords = Fused.<String>list().filter(s -> s.charAt(5) != '9').mapToInt(String::length).map(i -> i * 3).sum();
+        fusedInts = Fused.ints().filter(i -> (i & 1) == 0).map(i -> i * i).sum();
+    }
+
+    private void pollute(Blackhole blackhole) {
+        List<Predicate<String>> predicates = new ArrayList<>();
+        predicates.add(s -> s.isEmpty());
+        predicates.add(s -> s.length() > 8);
+        predicates.add(s -> s.endsWith("1"));
+        predicates.add(s -> s.contains("-5"));
+        List<ToIntFunction<String>> mappers = new ArrayList<>();
+        mappers.add(String::length);
+        mappers.add(String::hashCode);
+        mappers.add(s -> s.charAt(0));
+        List<IntPredicate> intPredicates = new ArrayList<>();
+        intPredicates.add(i -> i > 10);
+        intPredicates.add(i -> i % 7 == 0);
+        intPredicates.add(i -> i < 500);
+        for (int round = 0; round < 20; round++) {
+            for (Predicate<String> predicate : predicates) {
+                for (ToIntFunction<String> mapper : mappers) {
+                    blackhole.consume(words.stream().filter(predicate).mapToInt(mapper).map(i -> i + 1).sum());
+                }
+            }
+            for (IntPredicate predicate : intPredicates) {
+                blackhole.consume(IntStream.of(values).filter(predicate).map(i -> i - 1).sum());
+                blackhole.consume(IntStream.of(values).filter(predicate).map(i -> i ^ 5).sum());
+            }
+        }
+    }
+
+    @Benchmark
+    public int streamWords() {
+        return words.stream().filter(s -> s.charAt(5) != '9').mapToInt(String::length).map(i -> i * 3).sum();
+    }
+
+    @Benchmark
+    public int fusedWords() {
+        return fusedWords.applyAsInt(words);
+    }
+
+    @Benchmark
+    public int streamInts() {
+        return IntStream.of(values).filter(i -> (i & 1) == 0).map(i -> i * i).sum();
+    }
+
+    @Benchmark
+    public int fusedInts() {
+        return fusedInts.applyAsInt(values);
+    }
+}
@@ -0,0 +1,88 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// IntStream / DoubleStream aggregates vs Kernels over the same arrays
+// ./gradlew jmh -PjmhInclude=KernelsBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KernelsBenchmark {
+
+    @Param({"1000", "1000000", "100000000"})
+    public int size;
+
+    private int[] ints;
+    private double[] doubles;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ints = random.ints(size).toArray();
+        doubles = random.doubles(size).toArray();
+    }
+
+    @Benchmark
+    public int streamSum() {
+        return Arrays.stream(ints).sum();
+    }
+
+    @Benchmark
+    public int streamReduce() {
+        return Arrays.stream(ints).reduce(Integer::sum).orElse(0);
+    }
+
+    @Benchmark
+    public IntSummaryStatistics streamSummary() {
+        return Arrays.stream(ints).summaryStatistics();
+    }
+
+    @Benchmark
+    public IntSummaryStatistics parallelStreamSummary() {
+        return Arrays.stream(ints).parallel().summaryStatistics();
+    }
+
+    @Benchmark
+    public Kernels.IntSummary kernelSummary() {
+        return Kernels.summarize(ints);
+    }
+
+    @Benchmark
+    public Kernels.IntSummary parallelKernelSummary() {
+        return Kernels.parallelSummarize(ints);
+    }
+
+    @Benchmark
+    public double streamAverage() {
+        return Arrays.stream(doubles).average().orElse(0);
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics streamDoubleSummary() {
+        return Arrays.stream(doubles).summaryStatistics();
+    }
+
+    @Benchmark
+    public Kernels.DoubleSummary kernelDoubleSummary() {
+        return Kernels.summarize(doubles);
+    }
+
+    @Benchmark
+    public Kernels.DoubleSummary kernelDoubleLanes() {
+        return Kernels.summarizeLanes(doubles);
+    }
+
+    @Benchmark
+    public Kernels.DoubleSummary parallelKernelDoubleSummary() {
+        return Kernels.parallelSummarize(doubles);
+    }
+}
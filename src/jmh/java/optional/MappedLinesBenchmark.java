@@ -0,0 +1,88 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Files.lines vs MappedLines on a generated file (1 GB by default)
+// ./gradlew jmh -PjmhInclude=MappedLinesBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx512m"})
+@State(Scope.Benchmark)
+public class MappedLinesBenchmark {
+
+    @Param({"1073741824"})
+    public long fileSize;
+
+    private Path path;
+
+    @Setup
+    public void setUp() throws IOException {
+        path = Files.createTempFile("mapped-lines-bench", ".log");
+        Random random = new Random(42);
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            while (written < fileSize) {
+                String line = "2020-06-01T10:00:00 INFO request id=" + random.nextInt() + " status=" + (random.nextInt(5) == 0 ? "ERROR" : "OK");
+                writer.write(line);
+                writer.write('\n');
+                written += line.length() + 1;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public long filesLines() throws IOException {
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return lines.filter(l -> l.endsWith("ERROR")).count();
+        }
+    }
+
+    @Benchmark
+    public long filesLinesParallel() throws IOException {
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return lines.parallel().filter(l -> l.endsWith("ERROR")).count();
+        }
+    }
+
+    @Benchmark
+    public long mappedLines() throws IOException {
+        try (MappedLines lines = MappedLines.open(path)) {
+            return lines.lines().filter(MappedLinesBenchmark::isError).count();
+        }
+    }
+
+    @Benchmark
+    public long mappedLinesParallel() throws IOException {
+        try (MappedLines lines = MappedLines.open(path)) {
+            return lines.lines().parallel().filter(MappedLinesBenchmark::isError).count();
+        }
+    }
+
+    @Benchmark
+    public long mappedStringsParallel() throws IOException {
+        try (MappedLines lines = MappedLines.open(path)) {
+            return lines.strings().parallel().filter(l -> l.endsWith("ERROR")).count();
+        }
+    }
+
+    private static boolean isError(ByteLine line) {
+        int n = line.byteLength();
+        return n >= 5 && line.byteAt(n - 5) == 'E' && line.byteAt(n - 1) == 'R';
+    }
+}
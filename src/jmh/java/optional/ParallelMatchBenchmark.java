@@ -0,0 +1,72 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// time to first match, parallelStream().anyMatch vs ParallelMatch, with a regex + lookup predicate.
+// position is where the only match sits, as a fraction of the list (-1: no match)
+// ./gradlew jmh -PjmhInclude=ParallelMatchBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelMatchBenchmark {
+    private static final Pattern RULE = Pattern.compile("^rule-(\\d+)-J(\\w+)$");
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"0.001", "0.1", "0.5", "0.9", "-1"})
+    public double position;
+
+    private List<String> names;
+    private Set<String> blocked;
+    private Predicate<String> predicate;
+
+    @Setup
+    public void setUp() {
+        names = new ArrayList<>(size);
+        int match = position < 0 ? -1 : (int) (size * position);
+        for (int i = 0; i < size; i++) {
+            names.add(i == match ? "rule-" + i + "-Java" : "rule-" + i + "-Eric");
+        }
+        blocked = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            blocked.add("ava" + i);
+        }
+        predicate = name -> {
+            Matcher matcher = RULE.matcher(name);
+            return matcher.matches() && !blocked.contains(matcher.group(2));
+        };
+    }
+
+    @Benchmark
+    public boolean streamAnyMatch() {
+        return names.parallelStream().anyMatch(predicate);
+    }
+
+    @Benchmark
+    public boolean parallelMatchAnyMatch() {
+        return ParallelMatch.anyMatch(names, predicate, 300).getResult();
+    }
+
+    @Benchmark
+    public Object streamFindFirst() {
+        return names.parallelStream().filter(predicate).findFirst();
+    }
+
+    @Benchmark
+    public Object parallelMatchFindFirst() {
+        return ParallelMatch.findFirst(names, predicate, 300).getValue();
+    }
+}
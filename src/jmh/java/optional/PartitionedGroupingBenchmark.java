@@ -0,0 +1,87 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// parallel groupingBy / groupingByConcurrent vs PartitionedGrouping, 10M rows,
+// key cardinality from 2 (merges are free) to 10M (merging per split maps dominates)
+// ./gradlew jmh -PjmhInclude=PartitionedGroupingBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@State(Scope.Benchmark)
+public class PartitionedGroupingBenchmark {
+
+    @Param({"2", "1000", "100000", "1000000", "10000000"})
+    public int cardinality;
+
+    private List<Integer> rows;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int size = 10_000_000;
+        rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(random.nextInt(cardinality));
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByCounting() {
+        return rows.parallelStream().collect(Collectors.groupingBy(i -> i, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByConcurrentCounting() {
+        return rows.parallelStream().collect(Collectors.groupingByConcurrent(i -> i, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> partitionedCounting() {
+        return PartitionedGrouping.groupingBy(rows, i -> i, Collectors.counting());
+    }
+
+    @Benchmark
+    public Map<Integer, Long> stripedCounting() {
+        return PartitionedGrouping.groupingByConcurrent(rows, i -> i, Collectors.counting());
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> groupingByToList() {
+        return rows.parallelStream().collect(Collectors.groupingBy(i -> i));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> groupingByConcurrentToList() {
+        return rows.parallelStream().collect(Collectors.groupingByConcurrent(i -> i));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> partitionedToList() {
+        return PartitionedGrouping.groupingBy(rows, i -> i);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> stripedToList() {
+        return PartitionedGrouping.groupingByConcurrent(rows, i -> i);
+    }
+
+    @Benchmark
+    public Map<Boolean, Long> partitioningBy() {
+        return rows.parallelStream().collect(Collectors.partitioningBy(i -> i > cardinality / 2, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Boolean, Long> partitionedPartitioningBy() {
+        return PartitionedGrouping.partitioningBy(rows, i -> i > cardinality / 2, Collectors.counting());
+    }
+}
@@ -0,0 +1,112 @@
+package optional;
+
+import optional.StreamPipelineBenchmark.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// ArrayList<Product> vs ProductStore holding the same rows.
+// Setup prints the heap footprint and the time of FULL_GCS forced full collections with the catalog
+// live (GarbageCollectorMXBean time / count), -prof gc (on by default in the jmh task) shows gc.time /
+// gc.count of the churn benchmark, which allocates short lived garbage next to the live catalog.
+// ./gradlew jmh -PjmhInclude=ProductStoreBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+@State(Scope.Benchmark)
+public class ProductStoreBenchmark {
+
+    static final int FULL_GCS = 10;
+
+    @Param({"5000000", "10000000", "100000000"})
+    public int rows;
+
+    @Param({"heap", "offheap"})
+    public String storage;
+
+    private List<Product> products;
+    private ProductStore store;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long before = usedHeap();
+        long gcBefore = gcMillis();
+        if (storage.equals("heap")) {
+            products = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                products.add(new Product(random.nextInt(100), "product-" + random.nextInt(100_000)));
+            }
+        } else {
+            store = new ProductStore();
+            for (int i = 0; i < rows; i++) {
+                store.append(random.nextInt(100), "product-" + random.nextInt(100_000));
+            }
+        }
+        long gcTime = gcMillis() - gcBefore;
+        System.out.printf("%n%s, %d rows: heap %,d bytes, off-heap %,d bytes, gc during load %d ms%n",
+                storage, rows, usedHeap() - before, store == null ? 0 : store.getOffHeapBytes(), gcTime);
+
+        // full collections only have to trace what is live: the catalog
+        long countBefore = gcCount();
+        gcBefore = gcMillis();
+        for (int i = 0; i < FULL_GCS; i++) {
+            System.gc();
+        }
+        System.out.printf("%s, %d rows: %d forced full gcs (%d collections) took %d ms%n",
+                storage, rows, FULL_GCS, gcCount() - countBefore, gcMillis() - gcBefore);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    @Benchmark
+    public long sumAmounts() {
+        return products != null
+                ? products.parallelStream().mapToLong(Product::getAmount).sum()
+                : store.amounts().parallel().asLongStream().sum();
+    }
+
+    @Benchmark
+    public long countNames() {
+        return products != null
+                ? products.parallelStream().filter(p -> p.getName().endsWith("7")).count()
+                : store.stream((amount, name) -> name).parallel().filter(name -> name.byteAt(name.byteLength() - 1) == '7').count();
+    }
+
+    // short lived garbage while the catalog is live, compare gc.time between heap and offheap
+    @Benchmark
+    public void churn(Blackhole blackhole) {
+        for (int i = 0; i < 100_000; i++) {
+            blackhole.consume(new byte[128]);
+        }
+    }
+}
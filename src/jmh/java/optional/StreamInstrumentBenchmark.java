@@ -0,0 +1,62 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Overhead of StreamInstrument: plain pipeline vs disabled (target < 2%) vs enabled with sampling
+// ./gradlew jmh -PjmhInclude=StreamInstrumentBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StreamInstrumentBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1", "64", "1024"})
+    public int sampleRate;
+
+    private List<String> words;
+    private StreamInstrument disabled;
+    private StreamInstrument enabled;
+
+    @Setup
+    public void setUp() {
+        String[] names = {"one", "two", "three", "four", "five", "six"};
+        words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            words.add(names[i % names.length]);
+        }
+        disabled = new StreamInstrument("bench", new InMemoryMetricsSink(), false, sampleRate);
+        enabled = new StreamInstrument("bench", new InMemoryMetricsSink(), true, sampleRate);
+    }
+
+    @Benchmark
+    public List<String> plain() {
+        return words.stream().filter(s -> s.contains("o")).map(String::toUpperCase).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> instrumentDisabled() {
+        return run(disabled);
+    }
+
+    @Benchmark
+    public List<String> instrumentEnabled() {
+        return run(enabled);
+    }
+
+    private List<String> run(StreamInstrument in) {
+        return in.source("words", words.stream())
+                .filter(in.filter("contains-o", s -> s.contains("o")))
+                .map(in.map("upper", String::toUpperCase))
+                .collect(Collectors.toList());
+    }
+}
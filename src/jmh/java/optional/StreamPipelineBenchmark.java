@@ -0,0 +1,227 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// StreamTest.stream() pipelines vs hand-written loops, sequential and parallel
+// ./gradlew jmh -PjmhInclude=StreamPipelineBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamPipelineBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private List<String> first;
+    private List<String> second;
+    private List<List<String>> nested;
+    private List<String> words;
+    private int[] numbers;
+    private List<Product> products;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] names = {"one", "two", "three", "four", "five", "six", "potatos", "orange", "lemon", "bread", "suger"};
+
+        first = new ArrayList<>(size / 2);
+        second = new ArrayList<>(size - size / 2);
+        words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String word = names[random.nextInt(names.length)];
+            (i < size / 2 ? first : second).add(word);
+            words.add(word);
+        }
+
+        nested = new ArrayList<>();
+        for (int i = 0; i < size; i += 2) {
+            nested.add(words.subList(i, Math.min(i + 2, size)));
+        }
+
+        numbers = random.ints(size, 0, 1000).toArray();
+
+        products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(new Product(10 + random.nextInt(20), names[random.nextInt(names.length)]));
+        }
+    }
+
+    private <T> Stream<T> stream(Collection<T> source) {
+        return parallel ? source.parallelStream() : source.stream();
+    }
+
+    private IntStream intStream(int[] source) {
+        IntStream stream = Arrays.stream(source);
+        return parallel ? stream.parallel() : stream;
+    }
+
+    // concat -> filter -> map
+    @Benchmark
+    public List<String> concatFilterMap() {
+        Stream<String> concat = Stream.concat(stream(first), stream(second));
+        return concat.filter(s -> s.contains("e")).map(String::toUpperCase).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> concatFilterMapLoop() {
+        List<String> result = new ArrayList<>();
+        for (String s : first) {
+            if (s.contains("e")) result.add(s.toUpperCase());
+        }
+        for (String s : second) {
+            if (s.contains("e")) result.add(s.toUpperCase());
+        }
+        return result;
+    }
+
+    // flatMap
+    @Benchmark
+    public List<String> flatMap() {
+        return stream(nested).flatMap(Collection::stream).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> flatMapLoop() {
+        List<String> result = new ArrayList<>(size);
+        for (List<String> inner : nested) {
+            result.addAll(inner);
+        }
+        return result;
+    }
+
+    // sorted
+    @Benchmark
+    public int[] sortedInt() {
+        return intStream(numbers).sorted().toArray();
+    }
+
+    @Benchmark
+    public int[] sortedIntLoop() {
+        int[] copy = numbers.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public List<String> sortedNatural() {
+        return stream(words).sorted().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> sortedReverse() {
+        return stream(words).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> sortedComparingInt() {
+        return stream(words).sorted(Comparator.comparingInt(String::length)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> sortedLambda() {
+        return stream(words).sorted((s1, s2) -> s2.length() - s1.length()).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> sortedLoop() {
+        List<String> copy = new ArrayList<>(words);
+        copy.sort(Comparator.comparingInt(String::length));
+        return copy;
+    }
+
+    // reduce
+    @Benchmark
+    public int reduceIdentity() {
+        return intStream(numbers).reduce(10, Integer::sum);
+    }
+
+    @Benchmark
+    public Integer reduceBoxed() {
+        return stream(products).map(Product::getAmount).reduce(10, Integer::sum, Integer::sum);
+    }
+
+    @Benchmark
+    public int reduceLoop() {
+        int sum = 10;
+        for (int n : numbers) {
+            sum += n;
+        }
+        return sum;
+    }
+
+    // Collectors over Product
+    @Benchmark
+    public Map<Integer, List<Product>> groupingBy() {
+        return stream(products).collect(Collectors.groupingBy(Product::getAmount));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Product>> groupingByLoop() {
+        Map<Integer, List<Product>> result = new HashMap<>();
+        for (Product product : products) {
+            result.computeIfAbsent(product.getAmount(), k -> new ArrayList<>()).add(product);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<Boolean, List<Product>> partitioningBy() {
+        return stream(products).collect(Collectors.partitioningBy(el -> el.getAmount() > 15));
+    }
+
+    @Benchmark
+    public void partitioningByLoop(Blackhole bh) {
+        List<Product> yes = new ArrayList<>();
+        List<Product> no = new ArrayList<>();
+        for (Product product : products) {
+            (product.getAmount() > 15 ? yes : no).add(product);
+        }
+        bh.consume(yes);
+        bh.consume(no);
+    }
+
+    @Benchmark
+    public IntSummaryStatistics summarizingInt() {
+        return stream(products).collect(Collectors.summarizingInt(Product::getAmount));
+    }
+
+    @Benchmark
+    public IntSummaryStatistics summarizingIntLoop() {
+        IntSummaryStatistics statistics = new IntSummaryStatistics();
+        for (Product product : products) {
+            statistics.accept(product.getAmount());
+        }
+        return statistics;
+    }
+
+    public static class Product {
+        private final int amount;
+        private final String name;
+
+        public Product(int amount, String name) {
+            this.amount = amount;
+            this.name = name;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// splitting one CSV-like record: Pattern.splitAsStream / String.split vs Tokenizer
+// ./gradlew jmh -PjmhInclude=TokenizerBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+    private static final Pattern COMMA = Pattern.compile(", ");
+
+    @Param({"100", "10240"})
+    public int recordBytes;
+
+    private String record;
+    private ByteBuffer bytes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < recordBytes) {
+            if (builder.length() > 0) builder.append(", ");
+            int length = 3 + random.nextInt(10);
+            for (int i = 0; i < length; i++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        record = builder.substring(0, recordBytes);
+        bytes = ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // as in StreamTest: compiled per record
+    @Benchmark
+    public long patternCompileSplitAsStream() {
+        return Pattern.compile(", ").splitAsStream(record).mapToInt(String::length).sum();
+    }
+
+    @Benchmark
+    public long patternSplitAsStream() {
+        return COMMA.splitAsStream(record).mapToInt(String::length).sum();
+    }
+
+    @Benchmark
+    public long stringSplit() {
+        long sum = 0;
+        for (String token : record.split(", ")) {
+            sum += token.length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long tokenizerSplit() {
+        return Tokenizer.of(", ").split(record).mapToInt(CharSequence::length).sum();
+    }
+
+    @Benchmark
+    public long tokenizerForEach() {
+        long[] sum = new long[1];
+        Tokenizer.of(", ").forEach(record, (source, start, end) -> sum[0] += end - start);
+        return sum[0];
+    }
+
+    @Benchmark
+    public long tokenizerByteBuffer() {
+        return Tokenizer.of(", ").split(bytes).mapToInt(ByteLine::byteLength).sum();
+    }
+}
@@ -0,0 +1,70 @@
+package optional;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// sorted().limit(k) vs TopK, sources are generated so only the pipeline's own memory shows up in gc.alloc.rate.norm
+// ./gradlew jmh -PjmhInclude=TopKBenchmark
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@State(Scope.Benchmark)
+public class TopKBenchmark {
+
+    @Param({"100000000"})
+    public int n;
+
+    @Param({"100"})
+    public int k;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private IntStream ints() {
+        IntStream stream = new SplittableRandom(42).ints(n);
+        return parallel ? stream.parallel() : stream;
+    }
+
+    private Stream<String> words() {
+        return ints().map(i -> i & 0xFFFFF).mapToObj(i -> Integer.toString(i, 36));
+    }
+
+    @Benchmark
+    public int[] intSortedLimit() {
+        return ints().sorted().limit(k).toArray();
+    }
+
+    @Benchmark
+    public int[] intTopK() {
+        return TopK.smallest(ints(), k);
+    }
+
+    @Benchmark
+    public List<String> sortedLimit() {
+        return words().sorted(Comparator.comparingInt(String::length)).limit(k).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> topK() {
+        return words().collect(TopK.smallest(k, Comparator.comparingInt(String::length)));
+    }
+
+    @Benchmark
+    public List<String> reverseSortedLimit() {
+        return words().sorted(Comparator.reverseOrder()).limit(k).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> reverseTopK() {
+        return words().collect(TopK.smallest(k, Comparator.reverseOrder()));
+    }
+}
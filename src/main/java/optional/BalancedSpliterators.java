@@ -0,0 +1,172 @@
+package optional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Spliterators that split into evenly sized parts where the usual ones don't:
+// - nested.parallelStream().flatMap(Collection::stream) splits the outer list by inner list count,
+//   so one big inner list ends up on one thread. flatten(...) splits by element count across
+//   and inside the inner lists.
+// - iterator based sources split off batches of 1024, 2048, 3072, ... elements, rechunk(...)
+//   splits off fixed size batches so the leaves are even.
+public class BalancedSpliterators {
+
+    private BalancedSpliterators() {
+    }
+
+    // same elements and order as nested.stream().flatMap(Collection::stream)
+    public static <T> Spliterator<T> flatten(List<? extends Collection<? extends T>> nested) {
+        List<List<? extends T>> lists = new ArrayList<>(nested.size());
+        long[] offsets = new long[nested.size() + 1];
+        for (int i = 0; i < nested.size(); i++) {
+            Collection<? extends T> inner = nested.get(i);
+            List<? extends T> list = inner instanceof List && inner instanceof RandomAccess
+                    ? (List<? extends T>) inner : new ArrayList<>(inner);
+            lists.add(list);
+            offsets[i + 1] = offsets[i] + list.size();
+        }
+        return new FlatSpliterator<>(lists, offsets, 0, offsets[nested.size()]);
+    }
+
+    public static <T> Stream<T> flatStream(List<? extends Collection<? extends T>> nested, boolean parallel) {
+        return StreamSupport.stream(flatten(nested), parallel);
+    }
+
+    public static <T> Spliterator<T> rechunk(Spliterator<T> source, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        return new ChunkSpliterator<>(source, chunkSize);
+    }
+
+    // a range [from, to) of the flattened index space, offsets[i] is where inner list i starts
+    static final class FlatSpliterator<T> implements Spliterator<T> {
+        private final List<List<? extends T>> lists;
+        private final long[] offsets;
+        private long from;
+        private final long to;
+
+        FlatSpliterator(List<List<? extends T>> lists, long[] offsets, long from, long to) {
+            this.lists = lists;
+            this.offsets = offsets;
+            this.from = from;
+            this.to = to;
+        }
+
+        // inner list holding flat index, the last list whose offset is <= index
+        private int listOf(long index) {
+            int low = 0;
+            int high = lists.size() - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (offsets[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (from >= to) {
+                return false;
+            }
+            int list = listOf(from);
+            action.accept(lists.get(list).get((int) (from - offsets[list])));
+            from++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (from >= to) {
+                return;
+            }
+            int list = listOf(from);
+            long index = from;
+            from = to;
+            while (index < to) {
+                List<? extends T> inner = lists.get(list);
+                int start = (int) (index - offsets[list]);
+                int end = (int) (Math.min(to, offsets[list + 1]) - offsets[list]);
+                for (int i = start; i < end; i++) {
+                    action.accept(inner.get(i));
+                }
+                index += end - start;
+                list++;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            long middle = (from + to) >>> 1;
+            if (middle <= from) {
+                return null;
+            }
+            Spliterator<T> prefix = new FlatSpliterator<>(lists, offsets, from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
+    static final class ChunkSpliterator<T> implements Spliterator<T> {
+        private final Spliterator<T> source;
+        private final int chunkSize;
+
+        ChunkSpliterator(Spliterator<T> source, int chunkSize) {
+            this.source = source;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            return source.tryAdvance(action);
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            source.forEachRemaining(action);
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Object[] chunk = new Object[chunkSize];
+            int[] count = new int[1];
+            while (count[0] < chunkSize && source.tryAdvance(item -> chunk[count[0]++] = item)) {
+            }
+            if (count[0] == 0) {
+                return null;
+            }
+            return Spliterators.spliterator(chunk, 0, count[0], source.characteristics() & (ORDERED | NONNULL | IMMUTABLE | DISTINCT));
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & (ORDERED | NONNULL | IMMUTABLE | DISTINCT);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package optional;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// Zero copy view over a slice of a ByteBuffer.
+// Not a CharSequence: indexes are byte offsets, and a UTF-8 line has fewer chars than bytes.
+// Use toString() (UTF-8) or decode(charset) to get the text, asLatin1() for a CharSequence whose
+// chars are the bytes one to one (a regex over ASCII delimiters, offsets stay byte offsets).
+public class ByteLine {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    public ByteLine(ByteBuffer buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", limit: " + buffer.limit());
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public int byteLength() {
+        return length;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return buffer.get(offset + index);
+    }
+
+    // bytes [start, end) of this line, no copy
+    public ByteLine slice(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+        }
+        return new ByteLine(buffer, offset + start, end - start);
+    }
+
+    public boolean startsWith(byte[] prefix) {
+        if (prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[length];
+        buffer.duplicate().position(offset).get(bytes);
+        return bytes;
+    }
+
+    public String decode(Charset charset) {
+        return new String(toBytes(), charset);
+    }
+
+    // the bytes decoded as ISO-8859-1: length, charAt and toString all agree, no copy
+    public CharSequence asLatin1() {
+        return new Latin1(this);
+    }
+
+    @Override
+    public String toString() {
+        return decode(StandardCharsets.UTF_8);
+    }
+
+    private static final class Latin1 implements CharSequence {
+        private final ByteLine line;
+
+        Latin1(ByteLine line) {
+            this.line = line;
+        }
+
+        @Override
+        public int length() {
+            return line.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (line.byteAt(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Latin1(line.slice(start, end));
+        }
+
+        @Override
+        public String toString() {
+            return line.decode(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
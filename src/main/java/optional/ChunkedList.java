@@ -0,0 +1,153 @@
+package optional;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Append only list made of linked array chunks.
+// concat() links the other list's chunks in O(1), which makes it a cheap collector combiner.
+// get(int) binary searches an index of chunk start offsets, built on the first get after the list grew.
+public class ChunkedList<T> extends AbstractList<T> {
+    private static final int FIRST_CHUNK = 16;
+    private static final int MAX_CHUNK = 1 << 16;
+
+    private Chunk head;
+    private Chunk tail;
+    private int size;
+    private Chunk[] chunks;
+    private int[] starts;
+    private int indexedSize = -1;
+
+    private static final class Chunk {
+        final Object[] items;
+        int length;
+        Chunk next;
+
+        Chunk(int capacity) {
+            items = new Object[capacity];
+        }
+    }
+
+    @Override
+    public boolean add(T item) {
+        if (tail == null || tail.length == tail.items.length) {
+            Chunk chunk = new Chunk(Math.min(MAX_CHUNK, Math.max(FIRST_CHUNK, size)));
+            if (tail == null) {
+                head = chunk;
+            } else {
+                tail.next = chunk;
+            }
+            tail = chunk;
+        }
+        tail.items[tail.length++] = item;
+        size++;
+        return true;
+    }
+
+    // moves all elements of other to the end of this list, other is left empty
+    public ChunkedList<T> concat(ChunkedList<T> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot concat a list with itself");
+        }
+        if (other.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            head = other.head;
+        } else {
+            tail.next = other.head;
+        }
+        tail = other.tail;
+        size += other.size;
+        other.head = null;
+        other.tail = null;
+        other.size = 0;
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        if (indexedSize != size) {
+            index();
+        }
+        int found = Arrays.binarySearch(starts, index);
+        int chunk = found >= 0 ? found : -found - 2;
+        return (T) chunks[chunk].items[index - starts[chunk]];
+    }
+
+    private void index() {
+        int count = 0;
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+            count++;
+        }
+        chunks = new Chunk[count];
+        starts = new int[count];
+        int i = 0;
+        int start = 0;
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+            chunks[i] = chunk;
+            starts[i++] = start;
+            start += chunk.length;
+        }
+        indexedSize = size;
+    }
+
+    // one arraycopy per chunk instead of AbstractCollection's copy through the iterator
+    @Override
+    public Object[] toArray() {
+        Object[] array = new Object[size];
+        int at = 0;
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+            System.arraycopy(chunk.items, 0, array, at, chunk.length);
+            at += chunk.length;
+        }
+        return array;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i < chunk.length; i++) {
+                action.accept((T) chunk.items[i]);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Chunk chunk = head;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk != null && index == chunk.length) {
+                    chunk = chunk.next;
+                    index = 0;
+                }
+                return chunk != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T) chunk.items[index++];
+            }
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package optional;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Memoizing defaults for orElseGet / or: values are cached per key with a TTL and an LRU bound,
+// and concurrent misses on the same key wait for a single load.
+//   Optional.ofNullable(name).orElseGet(cache.supplier("text", this::getText))
+public class DefaultCache<K, V> {
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<K, Cached<V>> entries;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public DefaultCache(int maximumSize, Duration ttl) {
+        this(maximumSize, ttl, System::nanoTime);
+    }
+
+    DefaultCache(int maximumSize, Duration ttl, LongSupplier clock) {
+        if (maximumSize < 1 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("maximumSize: " + maximumSize + ", ttl: " + ttl);
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, Cached<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+                if (size() > DefaultCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static final class Cached<V> {
+        final V value;
+        final long expiresAt;
+
+        Cached(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public V get(K key, Supplier<? extends V> loader) {
+        Cached<V> entry = lookup(key);
+        if (entry != null) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // another thread may have finished loading between lookup() and putIfAbsent()
+            entry = lookup(key);
+            V value = entry != null ? entry.value : load(key, loader);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private V load(K key, Supplier<? extends V> loader) {
+        long start = clock.getAsLong();
+        V value = loader.get();
+        long now = clock.getAsLong();
+        loads.increment();
+        loadNanos.add(now - start);
+        synchronized (lock) {
+            entries.put(key, new Cached<>(value, now + ttlNanos));
+        }
+        return value;
+    }
+
+    private Cached<V> lookup(K key) {
+        synchronized (lock) {
+            Cached<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.getAsLong() - entry.expiresAt >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    // for Optional.orElseGet
+    public Supplier<V> supplier(K key, Supplier<? extends V> loader) {
+        return () -> get(key, loader);
+    }
+
+    // for Optional.or
+    public Supplier<Optional<V>> optional(K key, Supplier<? extends V> loader) {
+        return () -> Optional.ofNullable(get(key, loader));
+    }
+
+    public void invalidate(K key) {
+        synchronized (lock) {
+            entries.remove(key);
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,185 @@
+package optional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Dictionary encoded string column: one int code per row, values live once in a StringDictionary.
+// groupingBy / distinct / filter work on the codes and look at each distinct value at most once,
+// joining sizes one byte[] exactly from the dictionary's UTF-8 bytes and decodes it once.
+public class EncodedColumn {
+    private final StringDictionary dictionary;
+    private int[] codes;
+    private int size;
+
+    public EncodedColumn(StringDictionary dictionary) {
+        this(dictionary, 16);
+    }
+
+    public EncodedColumn(StringDictionary dictionary, int capacity) {
+        this.dictionary = dictionary;
+        this.codes = new int[Math.max(capacity, 1)];
+    }
+
+    // stream.map(Product::getName).collect(EncodedColumn.collector(dictionary))
+    public static Collector<String, ?, EncodedColumn> collector(StringDictionary dictionary) {
+        return Collector.of(() -> new EncodedColumn(dictionary), EncodedColumn::add, EncodedColumn::addAll,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public void add(String value) {
+        addCode(dictionary.intern(value));
+    }
+
+    private void addCode(int code) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        codes[size++] = code;
+    }
+
+    private EncodedColumn addAll(EncodedColumn other) {
+        if (other.dictionary != dictionary) {
+            throw new IllegalArgumentException("columns use different dictionaries");
+        }
+        if (size + other.size > codes.length) {
+            codes = Arrays.copyOf(codes, Math.max(codes.length * 2, size + other.size));
+        }
+        System.arraycopy(other.codes, 0, codes, size, other.size);
+        size += other.size;
+        return this;
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int code(int index) {
+        checkIndex(index);
+        return codes[index];
+    }
+
+    public String get(int index) {
+        return dictionary.get(code(index));
+    }
+
+    public IntStream codes() {
+        return Arrays.stream(codes, 0, size);
+    }
+
+    public Stream<String> stream() {
+        return codes().mapToObj(dictionary::get);
+    }
+
+    // stream.collect(groupingBy(identity(), counting())), counted per code
+    public Map<String, Long> counting() {
+        int[] counts = new int[dictionary.size()];
+        for (int i = 0; i < size; i++) {
+            counts[codes[i]]++;
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(dictionary.get(code), (long) counts[code]);
+            }
+        }
+        return result;
+    }
+
+    // stream.distinct() in encounter order
+    public List<String> distinct() {
+        BitSet seen = new BitSet(dictionary.size());
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int code = codes[i];
+            if (!seen.get(code)) {
+                seen.set(code);
+                result.add(dictionary.get(code));
+            }
+        }
+        return result;
+    }
+
+    // stream.filter(predicate), the predicate runs per distinct value, e.g. name -> name.contains("an")
+    public EncodedColumn filter(Predicate<? super String> predicate) {
+        BitSet matching = dictionary.matching(predicate);
+        EncodedColumn result = new EncodedColumn(dictionary);
+        for (int i = 0; i < size; i++) {
+            if (matching.get(codes[i])) {
+                result.addCode(codes[i]);
+            }
+        }
+        return result;
+    }
+
+    // stream.anyMatch(value::equals)
+    public boolean contains(String value) {
+        int code = dictionary.code(value);
+        if (code < 0) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (codes[i] == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String joining() {
+        return joining("", "", "");
+    }
+
+    public String joining(CharSequence delimiter) {
+        return joining(delimiter, "", "");
+    }
+
+    // Collectors.joining(delimiter, prefix, suffix)
+    public String joining(CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+        byte[] delimiterBytes = delimiter.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] prefixBytes = prefix.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] suffixBytes = suffix.toString().getBytes(StandardCharsets.UTF_8);
+
+        long length = prefixBytes.length + suffixBytes.length + (long) Math.max(size - 1, 0) * delimiterBytes.length;
+        for (int i = 0; i < size; i++) {
+            length += dictionary.bytes(codes[i]).length;
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("joined column is " + length + " bytes");
+        }
+
+        byte[] buffer = new byte[(int) length];
+        int position = put(buffer, 0, prefixBytes);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                position = put(buffer, position, delimiterBytes);
+            }
+            position = put(buffer, position, dictionary.bytes(codes[i]));
+        }
+        put(buffer, position, suffixBytes);
+        return new String(buffer, StandardCharsets.UTF_8);
+    }
+
+    private static int put(byte[] buffer, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package optional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.*;
+
+// Stream.sorted() for inputs larger than the heap.
+// Up to maxInMemory elements are sorted with Arrays.parallelSort and spilled as a binary run
+// to spillDirectory, the runs are then merged lazily with a LoserTree. Close the returned
+// stream (try-with-resources) to delete the run files early, they are also deleted once fully read.
+// A merge reads at most fanIn runs at once, each through a BUFFER_SIZE buffer, and fanIn is picked
+// so those buffers fit in the heap the in-memory buffer used. With more runs than that, consecutive
+// groups of fanIn runs are merged into new runs first, pass by pass, before the final lazy merge.
+public class ExternalSort {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // open files per merge, whatever the budget
+    private static final int MAX_FAN_IN = 128;
+    // budget per element for objects: a reference and the smallest object, real elements are larger
+    private static final int OBJECT_BYTES = 16;
+
+    private final int maxInMemory;
+    private final Path spillDirectory;
+    private final AtomicInteger spilledRuns = new AtomicInteger();
+
+    public ExternalSort(int maxInMemory, Path spillDirectory) {
+        if (maxInMemory < 1) {
+            throw new IllegalArgumentException("maxInMemory: " + maxInMemory);
+        }
+        this.maxInMemory = maxInMemory;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public interface Codec<T> {
+        void write(DataOutput out, T value) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    // number of runs written to disk so far, by every sort of this instance, merge passes included
+    public int getSpilledRuns() {
+        return spilledRuns.get();
+    }
+
+    // runs merged at once when elements take elementBytes of the budget, at least 2
+    int fanIn(int elementBytes) {
+        long budget = (long) maxInMemory * elementBytes;
+        return (int) Math.max(2, Math.min(MAX_FAN_IN, budget / BUFFER_SIZE));
+    }
+
+    private Path newRunFile() throws IOException {
+        spilledRuns.incrementAndGet();
+        return Files.createTempFile(spillDirectory, "sort-run-", ".bin");
+    }
+
+    private interface RunWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // the run file is deleted again if writing it fails
+    private Run writeRun(long count, RunWriter writer) throws IOException {
+        Path path = newRunFile();
+        try (DataOutputStream out = output(path)) {
+            writer.write(out);
+        } catch (Throwable e) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        return new Run(path, count);
+    }
+
+    private interface GroupMerger {
+        Run merge(List<Run> group) throws IOException;
+    }
+
+    // merges consecutive groups of fanIn runs until at most fanIn are left. Groups stay in input
+    // order so equal elements keep their order, as in the final merge.
+    private static List<Run> mergePasses(List<Run> runs, int fanIn, GroupMerger merger) throws IOException {
+        while (runs.size() > fanIn) {
+            List<Run> next = new ArrayList<>((runs.size() + fanIn - 1) / fanIn);
+            try {
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Run> group = new ArrayList<>(runs.subList(i, Math.min(i + fanIn, runs.size())));
+                    next.add(group.size() == 1 ? group.get(0) : merger.merge(group));
+                }
+            } catch (IOException | RuntimeException e) {
+                delete(next);
+                delete(runs);
+                throw e;
+            }
+            runs = next;
+        }
+        return runs;
+    }
+
+    private static long count(List<Run> runs) {
+        long count = 0;
+        for (Run run : runs) {
+            count += run.count;
+        }
+        return count;
+    }
+
+    private static DataOutputStream output(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    private static DataInputStream input(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+    }
+
+    private static void delete(List<Run> runs) {
+        for (Run run : runs) {
+            run.close();
+        }
+    }
+
+    // one spilled run: its file, element count and an open reader while merging
+    private static final class Run implements Closeable {
+        final Path path;
+        final long count;
+        DataInputStream in;
+        long read;
+
+        Run(Path path, long count) {
+            this.path = path;
+            this.count = count;
+        }
+
+        boolean hasNext() {
+            return read < count;
+        }
+
+        DataInputStream open() throws IOException {
+            in = input(path);
+            return in;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (in != null) {
+                    in.close();
+                    in = null;
+                }
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ---- objects
+
+    public <T> Stream<T> sorted(Stream<T> input, Comparator<? super T> comparator, Codec<T> codec) {
+        List<Run> runs = new ArrayList<>();
+        Object[] buffer = new Object[Math.min(maxInMemory, 1024)];
+        int size = 0;
+        try {
+            Iterator<T> iterator = input.iterator();
+            while (iterator.hasNext()) {
+                if (size == buffer.length) {
+                    if (size == maxInMemory) {
+                        runs.add(spill(buffer, size, comparator, codec));
+                        size = 0;
+                    } else {
+                        buffer = Arrays.copyOf(buffer, Math.min(maxInMemory, size * 2));
+                    }
+                }
+                buffer[size++] = iterator.next();
+            }
+            sort(buffer, size, comparator);
+            if (runs.isEmpty()) {
+                return inMemory(buffer, size);
+            }
+            if (size > 0) {
+                runs.add(write(buffer, size, codec));
+            }
+            // the read buffers of the merge take the place of the in-memory buffer
+            buffer = null;
+            runs = mergePasses(runs, fanIn(OBJECT_BYTES), group -> {
+                try (Stream<T> merged = merge(group, comparator, codec)) {
+                    Iterator<T> values = merged.iterator();
+                    return writeRun(count(group), out -> {
+                        while (values.hasNext()) {
+                            codec.write(out, values.next());
+                        }
+                    });
+                }
+            });
+        } catch (IOException e) {
+            delete(runs);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(runs);
+            throw e;
+        }
+        return merge(runs, comparator, codec);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void sort(Object[] buffer, int size, Comparator<? super T> comparator) {
+        Arrays.parallelSort((T[]) buffer, 0, size, comparator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Stream<T> inMemory(Object[] buffer, int size) {
+        return Arrays.stream((T[]) buffer, 0, size);
+    }
+
+    private <T> Run spill(Object[] buffer, int size, Comparator<? super T> comparator, Codec<T> codec) throws IOException {
+        sort(buffer, size, comparator);
+        return write(buffer, size, codec);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Run write(Object[] buffer, int size, Codec<T> codec) throws IOException {
+        return writeRun(size, out -> {
+            for (int i = 0; i < size; i++) {
+                codec.write(out, (T) buffer[i]);
+                buffer[i] = null;
+            }
+        });
+    }
+
+    private static <T> Stream<T> merge(List<Run> runs, Comparator<? super T> comparator, Codec<T> codec) {
+        int k = runs.size();
+        @SuppressWarnings("unchecked")
+        T[] heads = (T[]) new Object[k];
+        try {
+            for (int i = 0; i < k; i++) {
+                Run run = runs.get(i);
+                run.open();
+                heads[i] = codec.read(run.in);
+                run.read = 1;
+            }
+        } catch (IOException e) {
+            delete(runs);
+            throw new UncheckedIOException(e);
+        }
+        boolean[] done = new boolean[k];
+        LoserTree tree = new LoserTree(k, new LoserTree.Leaves() {
+            @Override
+            public boolean exhausted(int leaf) {
+                return done[leaf];
+            }
+
+            @Override
+            public int compare(int leaf, int other) {
+                return comparator.compare(heads[leaf], heads[other]);
+            }
+        });
+
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                int winner = tree.winner();
+                if (done[winner]) {
+                    return false;
+                }
+                T value = heads[winner];
+                Run run = runs.get(winner);
+                try {
+                    if (run.hasNext()) {
+                        heads[winner] = codec.read(run.in);
+                        run.read++;
+                    } else {
+                        heads[winner] = null;
+                        done[winner] = true;
+                        run.close();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                tree.replay();
+                action.accept(value);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> delete(runs));
+    }
+
+    // ---- int fast path
+
+    public IntStream sorted(IntStream input) {
+        List<Run> runs = new ArrayList<>();
+        int[] buffer = new int[Math.min(maxInMemory, 1024)];
+        int size = 0;
+        try {
+            PrimitiveIterator.OfInt iterator = input.iterator();
+            while (iterator.hasNext()) {
+                if (size == buffer.length) {
+                    if (size == maxInMemory) {
+                        Arrays.parallelSort(buffer, 0, size);
+                        runs.add(writeInts(buffer, size));
+                        size = 0;
+                    } else {
+                        buffer = Arrays.copyOf(buffer, Math.min(maxInMemory, size * 2));
+                    }
+                }
+                buffer[size++] = iterator.nextInt();
+            }
+            Arrays.parallelSort(buffer, 0, size);
+            if (runs.isEmpty()) {
+                return Arrays.stream(buffer, 0, size);
+            }
+            if (size > 0) {
+                runs.add(writeInts(buffer, size));
+            }
+            buffer = null;
+            runs = mergePasses(runs, fanIn(Integer.BYTES), group -> {
+                try (IntStream merged = mergeInts(group)) {
+                    PrimitiveIterator.OfInt values = merged.iterator();
+                    return writeRun(count(group), out -> {
+                        while (values.hasNext()) {
+                            out.writeInt(values.nextInt());
+                        }
+                    });
+                }
+            });
+        } catch (IOException e) {
+            delete(runs);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(runs);
+            throw e;
+        }
+        return mergeInts(runs);
+    }
+
+    private Run writeInts(int[] buffer, int size) throws IOException {
+        return writeRun(size, out -> {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(buffer[i]);
+            }
+        });
+    }
+
+    private static IntStream mergeInts(List<Run> runs) {
+        int k = runs.size();
+        int[] heads = new int[k];
+        boolean[] done = new boolean[k];
+        try {
+            for (int i = 0; i < k; i++) {
+                heads[i] = runs.get(i).open().readInt();
+                runs.get(i).read = 1;
+            }
+        } catch (IOException e) {
+            delete(runs);
+            throw new UncheckedIOException(e);
+        }
+        LoserTree tree = new LoserTree(k, new LoserTree.Leaves() {
+            @Override
+            public boolean exhausted(int leaf) {
+                return done[leaf];
+            }
+
+            @Override
+            public int compare(int leaf, int other) {
+                return Integer.compare(heads[leaf], heads[other]);
+            }
+        });
+
+        Spliterator.OfInt spliterator = new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.SORTED) {
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                int winner = tree.winner();
+                if (done[winner]) {
+                    return false;
+                }
+                int value = heads[winner];
+                Run run = runs.get(winner);
+                try {
+                    if (run.hasNext()) {
+                        heads[winner] = run.in.readInt();
+                        run.read++;
+                    } else {
+                        done[winner] = true;
+                        run.close();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                tree.replay();
+                action.accept(value);
+                return true;
+            }
+
+            @Override
+            public Comparator<? super Integer> getComparator() {
+                return null;
+            }
+        };
+        return StreamSupport.intStream(spliterator, false).onClose(() -> delete(runs));
+    }
+
+    // ---- long fast path
+
+    public LongStream sorted(LongStream input) {
+        List<Run> runs = new ArrayList<>();
+        long[] buffer = new long[Math.min(maxInMemory, 1024)];
+        int size = 0;
+        try {
+            PrimitiveIterator.OfLong iterator = input.iterator();
+            while (iterator.hasNext()) {
+                if (size == buffer.length) {
+                    if (size == maxInMemory) {
+                        Arrays.parallelSort(buffer, 0, size);
+                        runs.add(writeLongs(buffer, size));
+                        size = 0;
+                    } else {
+                        buffer = Arrays.copyOf(buffer, Math.min(maxInMemory, size * 2));
+                    }
+                }
+                buffer[size++] = iterator.nextLong();
+            }
+            Arrays.parallelSort(buffer, 0, size);
+            if (runs.isEmpty()) {
+                return Arrays.stream(buffer, 0, size);
+            }
+            if (size > 0) {
+                runs.add(writeLongs(buffer, size));
+            }
+            buffer = null;
+            runs = mergePasses(runs, fanIn(Long.BYTES), group -> {
+                try (LongStream merged = mergeLongs(group)) {
+                    PrimitiveIterator.OfLong values = merged.iterator();
+                    return writeRun(count(group), out -> {
+                        while (values.hasNext()) {
+                            out.writeLong(values.nextLong());
+                        }
+                    });
+                }
+            });
+        } catch (IOException e) {
+            delete(runs);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(runs);
+            throw e;
+        }
+        return mergeLongs(runs);
+    }
+
+    private Run writeLongs(long[] buffer, int size) throws IOException {
+        return writeRun(size, out -> {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(buffer[i]);
+            }
+        });
+    }
+
+    private static LongStream mergeLongs(List<Run> runs) {
+        int k = runs.size();
+        long[] heads = new long[k];
+        boolean[] done = new boolean[k];
+        try {
+            for (int i = 0; i < k; i++) {
+                heads[i] = runs.get(i).open().readLong();
+                runs.get(i).read = 1;
+            }
+        } catch (IOException e) {
+            delete(runs);
+            throw new UncheckedIOException(e);
+        }
+        LoserTree tree = new LoserTree(k, new LoserTree.Leaves() {
+            @Override
+            public boolean exhausted(int leaf) {
+                return done[leaf];
+            }
+
+            @Override
+            public int compare(int leaf, int other) {
+                return Long.compare(heads[leaf], heads[other]);
+            }
+        });
+
+        Spliterator.OfLong spliterator = new Spliterators.AbstractLongSpliterator(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.SORTED) {
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                int winner = tree.winner();
+                if (done[winner]) {
+                    return false;
+                }
+                long value = heads[winner];
+                Run run = runs.get(winner);
+                try {
+                    if (run.hasNext()) {
+                        heads[winner] = run.in.readLong();
+                        run.read++;
+                    } else {
+                        done[winner] = true;
+                        run.close();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                tree.replay();
+                action.accept(value);
+                return true;
+            }
+
+            @Override
+            public Comparator<? super Long> getComparator() {
+                return null;
+            }
+        };
+        return StreamSupport.longStream(spliterator, false).onClose(() -> delete(runs));
+    }
+}
@@ -0,0 +1,143 @@
+package optional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Collectors that stay cheap under parallel streams, see StreamTest Collector.of(LinkedList::new, ...)
+public class FastCollectors {
+
+    private FastCollectors() {
+    }
+
+    // Collector.of(LinkedList::new, LinkedList::add, addAll) with an O(1) combiner
+    public static <T> Collector<T, ?, ChunkedList<T>> toChunkedList() {
+        return Collector.of(ChunkedList::new, ChunkedList::add, ChunkedList::concat,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T> Collector<T, ?, List<T>> toPresizedList(int expectedSize) {
+        return Collector.of(() -> new ArrayList<>(expectedSize), List::add,
+                (first, second) -> {
+                    first.addAll(second);
+                    return first;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    // A collector can't see the source, so look at the spliterator first and fill an array of the
+    // exact size when the stream is SIZED (e.g. list.stream().map(...)). Parallel SUBSIZED splits
+    // write straight to their offset in that array, nothing is copied after. Like Collectors.toList()
+    // there is no guarantee on the type or mutability of the list: SIZED streams get a fixed size
+    // list over the array, the others an ArrayList.
+    // Arrays don't need this, Stream.toArray(generator) already uses the exact size.
+    public static <T> List<T> toSizedList(Stream<T> stream) {
+        boolean parallel = stream.isParallel();
+        Spliterator<T> spliterator = stream.spliterator();
+        long size = spliterator.getExactSizeIfKnown();
+        if (size < 0 || size > Integer.MAX_VALUE - 8) {
+            return StreamSupport.stream(spliterator, parallel).collect(toPresizedList(16));
+        }
+        Object[] array = new Object[(int) size];
+        if (!parallel) {
+            fill(spliterator, array, 0);
+        } else if (spliterator.hasCharacteristics(Spliterator.SUBSIZED)) {
+            long threshold = Math.max(1, size / (ForkJoinPool.getCommonPoolParallelism() * 4L));
+            new SizedFill<>(null, spliterator, array, 0, threshold).invoke();
+        } else {
+            // split sizes unknown: per split chunks, concatenated in O(1), copied once chunk by chunk
+            array = StreamSupport.stream(spliterator, true).collect(toChunkedList()).toArray();
+        }
+        return asList(array);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(Object[] array) {
+        return Arrays.asList((T[]) array);
+    }
+
+    // fills array[offset, offset + size) from a SUBSIZED spliterator, forking off left splits
+    // at the offsets their exact sizes give
+    private static final class SizedFill<T> extends CountedCompleter<Void> {
+        private final Spliterator<T> spliterator;
+        private final Object[] array;
+        private final int offset;
+        private final long threshold;
+
+        SizedFill(SizedFill<T> parent, Spliterator<T> spliterator, Object[] array, int offset, long threshold) {
+            super(parent);
+            this.spliterator = spliterator;
+            this.array = array;
+            this.offset = offset;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void compute() {
+            Spliterator<T> right = spliterator;
+            Spliterator<T> left;
+            int at = offset;
+            while (right.estimateSize() > threshold && (left = right.trySplit()) != null) {
+                // sized before the fork, the forked task drains it
+                int leftSize = (int) left.getExactSizeIfKnown();
+                addToPendingCount(1);
+                new SizedFill<>(this, left, array, at, threshold).fork();
+                at += leftSize;
+            }
+            fill(right, array, at);
+            tryComplete();
+        }
+    }
+
+    private static <T> void fill(Spliterator<T> spliterator, Object[] array, int from) {
+        long size = spliterator.getExactSizeIfKnown();
+        int[] at = {from};
+        spliterator.forEachRemaining(item -> array[at[0]++] = item);
+        if (at[0] - from != size) {
+            throw new ConcurrentModificationException("spliterator reported " + size + " elements, had " + (at[0] - from));
+        }
+    }
+
+    // groupingByConcurrent whose buckets are concurrent too, so accumulation needs no lock
+    public static <T, K> Collector<T, ?, ConcurrentMap<K, Collection<T>>> groupingByConcurrent(
+            Function<? super T, ? extends K> classifier) {
+        return Collector.<T, ConcurrentMap<K, Collection<T>>>of(ConcurrentHashMap::new,
+                (map, item) -> map.computeIfAbsent(classifier.apply(item), k -> new ConcurrentLinkedQueue<>()).add(item),
+                (first, second) -> {
+                    second.forEach((key, items) -> first.merge(key, items, (a, b) -> {
+                        a.addAll(b);
+                        return a;
+                    }));
+                    return first;
+                },
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T, K> Collector<T, ?, ConcurrentMap<K, LongAdder>> countingByConcurrent(
+            Function<? super T, ? extends K> classifier) {
+        return Collector.<T, ConcurrentMap<K, LongAdder>>of(ConcurrentHashMap::new,
+                (map, item) -> map.computeIfAbsent(classifier.apply(item), k -> new LongAdder()).increment(),
+                (first, second) -> {
+                    second.forEach((key, count) -> first.computeIfAbsent(key, k -> new LongAdder()).add(count.sum()));
+                    return first;
+                },
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+}
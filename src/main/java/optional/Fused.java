@@ -0,0 +1,427 @@
+package optional;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+// filter / map / mapToInt / reduce chains fused into one loop, e.g.
+//   ToIntFunction<List<String>> f = Fused.<String>list().filter(s -> s.startsWith("a")).mapToInt(String::length).sum();
+//   f.applyAsInt(names)
+// A stream runs every element through one Sink object per stage; here the stages are composed with
+// MethodHandle combinators into a single countedLoop, int stages stay on int (no boxing).
+// The composed handle depends only on the shape (source, stage kinds, terminal) and is cached,
+// each pipeline binds its own lambdas into it. The JVM spins a class for the composed handle
+// and, once it is hot, customizes it for the bound lambdas so they can be inlined even when
+// the same lambda types are megamorphic everywhere else.
+// Build a pipeline once and reuse it, building is the expensive part.
+public class Fused {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<String, MethodHandle> SHAPES = new ConcurrentHashMap<>();
+    private static final MethodHandle TO_ARRAY = helper("toArray", MethodType.methodType(Object[].class, Object.class))
+            .asType(MethodType.methodType(Object.class, Object.class));
+
+    private Fused() {
+    }
+
+    public static <T> Pipeline<List<T>, T> list() {
+        return new Pipeline<>(new Shape(Source.LIST, Collections.emptyList()));
+    }
+
+    public static IntPipeline<int[]> ints() {
+        return new IntPipeline<>(new Shape(Source.INT_ARRAY, Collections.emptyList()));
+    }
+
+    // cached shapes, for tests
+    static int getShapeCount() {
+        return SHAPES.size();
+    }
+
+    // how the loop reads its source: LIST through size() / get(i) for RandomAccess lists,
+    // other lists are copied with toArray() and read as OBJECT_ARRAY
+    private enum Source {
+        LIST(List.class, Object.class),
+        OBJECT_ARRAY(Object[].class, Object.class),
+        INT_ARRAY(int[].class, int.class);
+
+        final Class<?> containerType;
+        final Class<?> elementType;
+
+        Source(Class<?> containerType, Class<?> elementType) {
+            this.containerType = containerType;
+            this.elementType = elementType;
+        }
+
+        MethodHandle length() {
+            return this == LIST
+                    ? virtual(List.class, "size", MethodType.methodType(int.class))
+                    : MethodHandles.arrayLength(containerType);
+        }
+
+        MethodHandle getter() {
+            return this == LIST
+                    ? virtual(List.class, "get", MethodType.methodType(Object.class, int.class))
+                    : MethodHandles.arrayElementGetter(containerType);
+        }
+    }
+
+    private enum Kind {
+        FILTER(Predicate.class, "test", boolean.class, Object.class),
+        MAP(Function.class, "apply", Object.class, Object.class),
+        MAP_TO_INT(ToIntFunction.class, "applyAsInt", int.class, Object.class),
+        INT_FILTER(IntPredicate.class, "test", boolean.class, int.class),
+        INT_MAP(IntUnaryOperator.class, "applyAsInt", int.class, int.class),
+        MAP_TO_OBJ(IntFunction.class, "apply", Object.class, int.class);
+
+        final Class<?> type;
+        final MethodHandle handle;
+
+        Kind(Class<?> type, String method, Class<?> returnType, Class<?> parameterType) {
+            this.type = type;
+            this.handle = virtual(type, method, MethodType.methodType(returnType, parameterType));
+        }
+
+        boolean isFilter() {
+            return this == FILTER || this == INT_FILTER;
+        }
+    }
+
+    private enum Terminal {
+        REDUCE_INT(int.class),
+        REDUCE(Object.class),
+        TO_LIST(Object.class),
+        COUNT(long.class);
+
+        final Class<?> accumulator;
+
+        Terminal(Class<?> accumulator) {
+            this.accumulator = accumulator;
+        }
+    }
+
+    private static MethodHandle virtual(Class<?> type, String name, MethodType methodType) {
+        try {
+            return LOOKUP.findVirtual(type, name, methodType);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle helper(String name, MethodType methodType) {
+        try {
+            return LOOKUP.findStatic(Fused.class, name, methodType);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object add(Object list, Object item) {
+        ((List<Object>) list).add(item);
+        return list;
+    }
+
+    private static long countRef(long count, Object item) {
+        return count + 1;
+    }
+
+    private static long countInt(long count, int item) {
+        return count + 1;
+    }
+
+    // stages recorded so far, immutable so a prefix can be shared by several pipelines
+    private static final class Shape {
+        final Source source;
+        final List<Kind> kinds;
+        final List<Object> functions;
+
+        Shape(Source source, List<Kind> kinds) {
+            this(source, kinds, Collections.emptyList());
+        }
+
+        Shape(Source source, List<Kind> kinds, List<Object> functions) {
+            this.source = source;
+            this.kinds = kinds;
+            this.functions = functions;
+        }
+
+        Shape then(Kind kind, Object function) {
+            List<Kind> nextKinds = new ArrayList<>(kinds);
+            nextKinds.add(kind);
+            List<Object> nextFunctions = new ArrayList<>(functions);
+            nextFunctions.add(function);
+            return new Shape(source, nextKinds, nextFunctions);
+        }
+
+        // (source, init) -> accumulator with the lambdas bound
+        Loop compile(Terminal terminal, Object terminalFunction) {
+            List<Object> bound = new ArrayList<>(functions);
+            if (terminalFunction != null) {
+                bound.add(terminalFunction);
+            }
+            if (source == Source.LIST) {
+                // RandomAccess lists are read in place, only other lists pay for a copy
+                MethodHandle copied = MethodHandles.filterArguments(bind(Source.OBJECT_ARRAY, terminal, bound), 0, TO_ARRAY);
+                return new Loop(bind(Source.LIST, terminal, bound), copied);
+            }
+            MethodHandle loop = bind(source, terminal, bound);
+            return new Loop(loop, loop);
+        }
+
+        // (source as Object, init) -> accumulator
+        private MethodHandle bind(Source container, Terminal terminal, List<Object> bound) {
+            String key = container + ":" + kinds + ":" + terminal;
+            MethodHandle loop = SHAPES.computeIfAbsent(key, k -> build(container, terminal));
+            MethodHandle run = MethodHandles.insertArguments(loop, 2, bound.toArray());
+            return run.asType(run.type().changeParameterType(0, Object.class));
+        }
+
+        // builds (container, init, lambdas...) -> accumulator
+        private MethodHandle build(Source container, Terminal terminal) {
+            Class<?> acc = terminal.accumulator;
+            Class<?> element = elementType(kinds.size());
+            List<Class<?>> tail = new ArrayList<>();
+
+            // k: (acc, element, lambdas of the later stages...) -> acc
+            MethodHandle k;
+            switch (terminal) {
+                case REDUCE_INT:
+                    tail.add(IntBinaryOperator.class);
+                    k = permute(virtual(IntBinaryOperator.class, "applyAsInt", MethodType.methodType(int.class, int.class, int.class)),
+                            MethodType.methodType(int.class, int.class, int.class, IntBinaryOperator.class), 2, 0, 1);
+                    break;
+                case REDUCE:
+                    tail.add(BinaryOperator.class);
+                    k = permute(virtual(BinaryOperator.class, "apply", MethodType.methodType(Object.class, Object.class, Object.class)),
+                            MethodType.methodType(Object.class, Object.class, Object.class, BinaryOperator.class), 2, 0, 1);
+                    break;
+                case TO_LIST:
+                    k = helper("add", MethodType.methodType(Object.class, Object.class, Object.class));
+                    break;
+                default:
+                    k = element == int.class
+                            ? helper("countInt", MethodType.methodType(long.class, long.class, int.class))
+                            : helper("countRef", MethodType.methodType(long.class, long.class, Object.class));
+            }
+
+            for (int s = kinds.size() - 1; s >= 0; s--) {
+                Kind kind = kinds.get(s);
+                Class<?> in = elementType(s);
+                List<Class<?>> params = new ArrayList<>();
+                params.add(acc);
+                params.add(in);
+                params.add(kind.type);
+                params.addAll(tail);
+                MethodType type = MethodType.methodType(acc, params);
+
+                if (kind.isFilter()) {
+                    // test(element) ? k(acc, element, tail) : acc
+                    MethodHandle test = MethodHandles.permuteArguments(kind.handle, type.changeReturnType(boolean.class), 2, 1);
+                    MethodHandle pass = MethodHandles.dropArguments(k, 2, kind.type);
+                    MethodHandle skip = MethodHandles.dropArguments(MethodHandles.identity(acc), 1, params.subList(1, params.size()));
+                    k = MethodHandles.guardWithTest(test, pass, skip);
+                } else {
+                    // k(acc, f(element), tail): (acc, f, element, tail) reordered to (acc, element, f, tail)
+                    MethodHandle mapped = MethodHandles.collectArguments(k, 1, kind.handle);
+                    int[] reorder = new int[params.size()];
+                    reorder[0] = 0;
+                    reorder[1] = 2;
+                    reorder[2] = 1;
+                    for (int i = 3; i < reorder.length; i++) {
+                        reorder[i] = i;
+                    }
+                    k = MethodHandles.permuteArguments(mapped, type, reorder);
+                }
+                tail.add(0, kind.type);
+            }
+
+            // countedLoop body: (acc, i, container, init, lambdas...) -> k(acc, container[i], lambdas...)
+            List<Class<?>> loopParams = new ArrayList<>();
+            loopParams.add(container.containerType);
+            loopParams.add(acc);
+            loopParams.addAll(tail);
+
+            MethodHandle step = MethodHandles.collectArguments(k, 1, container.getter());
+            List<Class<?>> bodyParams = new ArrayList<>();
+            bodyParams.add(acc);
+            bodyParams.add(int.class);
+            bodyParams.addAll(loopParams);
+            int[] reorder = new int[3 + tail.size()];
+            reorder[0] = 0;
+            reorder[1] = 2;
+            reorder[2] = 1;
+            for (int i = 0; i < tail.size(); i++) {
+                reorder[3 + i] = 4 + i;
+            }
+            MethodHandle body = MethodHandles.permuteArguments(step, MethodType.methodType(acc, bodyParams), reorder);
+            MethodHandle iterations = MethodHandles.permuteArguments(container.length(),
+                    MethodType.methodType(int.class, loopParams), 0);
+            MethodHandle init = MethodHandles.permuteArguments(MethodHandles.identity(acc),
+                    MethodType.methodType(acc, loopParams), 1);
+            return MethodHandles.countedLoop(iterations, init, body);
+        }
+
+        <S> ToLongFunction<S> count() {
+            Loop loop = compile(Terminal.COUNT, null);
+            return source -> {
+                try {
+                    return (long) loop.select(source).invokeExact((Object) source, 0L);
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        }
+
+        // element type entering stage s
+        private Class<?> elementType(int s) {
+            Class<?> type = source.elementType;
+            for (int i = 0; i < s; i++) {
+                Kind kind = kinds.get(i);
+                if (kind == Kind.MAP_TO_INT) {
+                    type = int.class;
+                } else if (kind == Kind.MAP_TO_OBJ) {
+                    type = Object.class;
+                }
+            }
+            return type;
+        }
+
+        private static MethodHandle permute(MethodHandle target, MethodType type, int... reorder) {
+            return MethodHandles.permuteArguments(target, type, reorder);
+        }
+    }
+
+    private static Object[] toArray(Object list) {
+        return ((List<?>) list).toArray();
+    }
+
+    // the RandomAccess check stays in plain Java, a guardWithTest around the loop keeps it from being customized
+    private static final class Loop {
+        private final MethodHandle direct;
+        private final MethodHandle copied;
+
+        Loop(MethodHandle direct, MethodHandle copied) {
+            this.direct = direct;
+            this.copied = copied;
+        }
+
+        MethodHandle select(Object source) {
+            return source instanceof RandomAccess ? direct : copied;
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+    // reference elements of type T, read from a source S (a List)
+    public static final class Pipeline<S, T> {
+        private final Shape shape;
+
+        private Pipeline(Shape shape) {
+            this.shape = shape;
+        }
+
+        public Pipeline<S, T> filter(Predicate<? super T> predicate) {
+            return new Pipeline<>(shape.then(Kind.FILTER, predicate));
+        }
+
+        public <R> Pipeline<S, R> map(Function<? super T, ? extends R> mapper) {
+            return new Pipeline<>(shape.then(Kind.MAP, mapper));
+        }
+
+        public IntPipeline<S> mapToInt(ToIntFunction<? super T> mapper) {
+            return new IntPipeline<>(shape.then(Kind.MAP_TO_INT, mapper));
+        }
+
+        @SuppressWarnings("unchecked")
+        public Function<S, T> reduce(T identity, BinaryOperator<T> accumulator) {
+            Loop loop = shape.compile(Terminal.REDUCE, accumulator);
+            return source -> {
+                try {
+                    Object result = loop.select(source).invokeExact((Object) source, (Object) identity);
+                    return (T) result;
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        public Function<S, List<T>> toList() {
+            Loop loop = shape.compile(Terminal.TO_LIST, null);
+            return source -> {
+                try {
+                    Object list = loop.select(source).invokeExact((Object) source, (Object) new ArrayList<T>());
+                    return (List<T>) list;
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        }
+
+        public ToLongFunction<S> count() {
+            return shape.count();
+        }
+    }
+
+    // int elements, read from a source S (a List or an int[])
+    public static final class IntPipeline<S> {
+        private final Shape shape;
+
+        private IntPipeline(Shape shape) {
+            this.shape = shape;
+        }
+
+        public IntPipeline<S> filter(IntPredicate predicate) {
+            return new IntPipeline<>(shape.then(Kind.INT_FILTER, predicate));
+        }
+
+        public IntPipeline<S> map(IntUnaryOperator mapper) {
+            return new IntPipeline<>(shape.then(Kind.INT_MAP, mapper));
+        }
+
+        public <R> Pipeline<S, R> mapToObj(IntFunction<? extends R> mapper) {
+            return new Pipeline<>(shape.then(Kind.MAP_TO_OBJ, mapper));
+        }
+
+        public ToIntFunction<S> sum() {
+            return reduce(0, Integer::sum);
+        }
+
+        public ToIntFunction<S> reduce(int identity, IntBinaryOperator operator) {
+            Loop loop = shape.compile(Terminal.REDUCE_INT, operator);
+            return source -> {
+                try {
+                    return (int) loop.select(source).invokeExact((Object) source, identity);
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        }
+
+        public ToLongFunction<S> count() {
+            return shape.count();
+        }
+    }
+}
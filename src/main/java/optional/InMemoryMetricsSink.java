@@ -0,0 +1,26 @@
+package optional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Keeps the last published metrics per pipeline/stage, for tests and debugging
+public class InMemoryMetricsSink implements MetricsSink {
+    private final Map<String, StreamInstrument.StageMetrics> metrics = new ConcurrentHashMap<>();
+    private final List<String> published = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(String pipeline, StreamInstrument.StageMetrics stage) {
+        metrics.put(pipeline + "/" + stage.getStage(), stage);
+        published.add(pipeline + "/" + stage.getStage());
+    }
+
+    public StreamInstrument.StageMetrics get(String pipeline, String stage) {
+        return metrics.get(pipeline + "/" + stage);
+    }
+
+    public synchronized List<String> getPublished() {
+        return new ArrayList<>(published);
+    }
+}
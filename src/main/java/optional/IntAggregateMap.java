@@ -0,0 +1,201 @@
+package optional;
+
+import java.util.Arrays;
+
+// Open addressing int -> (count, sum, min, max, top-k) map.
+// Slots are parallel primitive arrays so adding a row never boxes or allocates.
+public class IntAggregateMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int topK;
+    private int[] keys;
+    private boolean[] used;
+    private long[] counts;
+    private long[] sums;
+    private int[] mins;
+    private int[] maxs;
+    // min-heap of the largest values per slot, slot i owns [i * topK, (i + 1) * topK)
+    private int[] tops;
+    private int[] topSizes;
+    private int size;
+    private int mask;
+
+    public IntAggregateMap(int expectedKeys, int topK) {
+        if (topK < 0) {
+            throw new IllegalArgumentException("topK: " + topK);
+        }
+        this.topK = topK;
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedKeys / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public static IntAggregateMap aggregate(int[] keys, int[] values, int length, int topK) {
+        IntAggregateMap map = new IntAggregateMap(16, topK);
+        for (int i = 0; i < length; i++) {
+            map.add(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        counts = new long[capacity];
+        sums = new long[capacity];
+        mins = new int[capacity];
+        maxs = new int[capacity];
+        tops = new int[capacity * topK];
+        topSizes = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int slot(int key) {
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public void add(int key, int value) {
+        int slot = slot(key);
+        if (!used[slot]) {
+            if (size + 1 > keys.length * LOAD_FACTOR) {
+                rehash();
+                slot = slot(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            mins[slot] = Integer.MAX_VALUE;
+            maxs[slot] = Integer.MIN_VALUE;
+            size++;
+        }
+        counts[slot]++;
+        sums[slot] += value;
+        if (value < mins[slot]) mins[slot] = value;
+        if (value > maxs[slot]) maxs[slot] = value;
+        if (topK > 0) {
+            offerTop(slot, value);
+        }
+    }
+
+    private void offerTop(int slot, int value) {
+        int base = slot * topK;
+        int n = topSizes[slot];
+        if (n < topK) {
+            int i = n;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (tops[base + parent] <= value) break;
+                tops[base + i] = tops[base + parent];
+                i = parent;
+            }
+            tops[base + i] = value;
+            topSizes[slot] = n + 1;
+        } else if (value > tops[base]) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= n) break;
+                if (child + 1 < n && tops[base + child + 1] < tops[base + child]) child++;
+                if (tops[base + child] >= value) break;
+                tops[base + i] = tops[base + child];
+                i = child;
+            }
+            tops[base + i] = value;
+        }
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        long[] oldCounts = counts;
+        long[] oldSums = sums;
+        int[] oldMins = mins;
+        int[] oldMaxs = maxs;
+        int[] oldTops = tops;
+        int[] oldTopSizes = topSizes;
+
+        allocate(oldKeys.length * 2);
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (!oldUsed[old]) continue;
+            int slot = slot(oldKeys[old]);
+            used[slot] = true;
+            keys[slot] = oldKeys[old];
+            counts[slot] = oldCounts[old];
+            sums[slot] = oldSums[old];
+            mins[slot] = oldMins[old];
+            maxs[slot] = oldMaxs[old];
+            topSizes[slot] = oldTopSizes[old];
+            System.arraycopy(oldTops, old * topK, tops, slot * topK, topK);
+        }
+    }
+
+    private int find(int key) {
+        int slot = slot(key);
+        return used[slot] ? slot : -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) result[n++] = keys[slot];
+        }
+        return result;
+    }
+
+    public long count(int key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    public long sum(int key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : sums[slot];
+    }
+
+    public int min(int key) {
+        int slot = find(key);
+        return slot < 0 ? Integer.MAX_VALUE : mins[slot];
+    }
+
+    public int max(int key) {
+        int slot = find(key);
+        return slot < 0 ? Integer.MIN_VALUE : maxs[slot];
+    }
+
+    public double average(int key) {
+        int slot = find(key);
+        return slot < 0 ? 0.0d : (double) sums[slot] / counts[slot];
+    }
+
+    // largest values first
+    public int[] topK(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return new int[0];
+        }
+        int[] result = Arrays.copyOfRange(tops, slot * topK, slot * topK + topSizes[slot]);
+        Arrays.sort(result);
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            int tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+}
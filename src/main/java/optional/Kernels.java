@@ -0,0 +1,479 @@
+package optional;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.LongSummaryStatistics;
+import java.util.stream.IntStream;
+
+// count / sum / min / max / sum of squares over primitive arrays in one pass.
+// Loops keep four independent accumulators so the JIT can pipeline (and auto-vectorize) them,
+// parallel versions summarize fixed size chunks on the common pool and combine the results.
+// int and long sums are exact like Int/LongSummaryStatistics. summarize(double[]) keeps the Kahan sum
+// of DoubleSummaryStatistics as one chain in array order, so it is bit for bit the stream result, and
+// only unrolls what does not depend on the order; summarizeLanes(double[]) also splits the sum into
+// four compensated lanes, which is faster but rounds differently (a few ulp).
+public class Kernels {
+    static final int CHUNK = 1 << 16;
+
+    private Kernels() {
+    }
+
+    // ---- int
+
+    public static IntSummary summarize(int[] values) {
+        return summarize(values, 0, values.length);
+    }
+
+    public static IntSummary summarize(int[] values, int from, int to) {
+        checkRange(values.length, from, to);
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int min0 = Integer.MAX_VALUE, min1 = Integer.MAX_VALUE, min2 = Integer.MAX_VALUE, min3 = Integer.MAX_VALUE;
+        int max0 = Integer.MIN_VALUE, max1 = Integer.MIN_VALUE, max2 = Integer.MIN_VALUE, max3 = Integer.MIN_VALUE;
+        double q0 = 0, q1 = 0, q2 = 0, q3 = 0;
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            int v0 = values[i], v1 = values[i + 1], v2 = values[i + 2], v3 = values[i + 3];
+            s0 += v0;
+            s1 += v1;
+            s2 += v2;
+            s3 += v3;
+            min0 = Math.min(min0, v0);
+            min1 = Math.min(min1, v1);
+            min2 = Math.min(min2, v2);
+            min3 = Math.min(min3, v3);
+            max0 = Math.max(max0, v0);
+            max1 = Math.max(max1, v1);
+            max2 = Math.max(max2, v2);
+            max3 = Math.max(max3, v3);
+            q0 += (double) v0 * v0;
+            q1 += (double) v1 * v1;
+            q2 += (double) v2 * v2;
+            q3 += (double) v3 * v3;
+        }
+        for (; i < to; i++) {
+            int v = values[i];
+            s0 += v;
+            min0 = Math.min(min0, v);
+            max0 = Math.max(max0, v);
+            q0 += (double) v * v;
+        }
+        return new IntSummary(to - from, s0 + s1 + s2 + s3,
+                Math.min(Math.min(min0, min1), Math.min(min2, min3)),
+                Math.max(Math.max(max0, max1), Math.max(max2, max3)),
+                q0 + q1 + q2 + q3);
+    }
+
+    public static IntSummary parallelSummarize(int[] values) {
+        return chunks(values.length).parallel()
+                .mapToObj(c -> summarize(values, c * CHUNK, Math.min(values.length, (c + 1) * CHUNK)))
+                .reduce(IntSummary::combine)
+                .orElseGet(() -> summarize(values));
+    }
+
+    // ---- long
+
+    public static LongSummary summarize(long[] values) {
+        return summarize(values, 0, values.length);
+    }
+
+    public static LongSummary summarize(long[] values, int from, int to) {
+        checkRange(values.length, from, to);
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        long min0 = Long.MAX_VALUE, min1 = Long.MAX_VALUE, min2 = Long.MAX_VALUE, min3 = Long.MAX_VALUE;
+        long max0 = Long.MIN_VALUE, max1 = Long.MIN_VALUE, max2 = Long.MIN_VALUE, max3 = Long.MIN_VALUE;
+        double q0 = 0, q1 = 0, q2 = 0, q3 = 0;
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            long v0 = values[i], v1 = values[i + 1], v2 = values[i + 2], v3 = values[i + 3];
+            s0 += v0;
+            s1 += v1;
+            s2 += v2;
+            s3 += v3;
+            min0 = Math.min(min0, v0);
+            min1 = Math.min(min1, v1);
+            min2 = Math.min(min2, v2);
+            min3 = Math.min(min3, v3);
+            max0 = Math.max(max0, v0);
+            max1 = Math.max(max1, v1);
+            max2 = Math.max(max2, v2);
+            max3 = Math.max(max3, v3);
+            q0 += (double) v0 * v0;
+            q1 += (double) v1 * v1;
+            q2 += (double) v2 * v2;
+            q3 += (double) v3 * v3;
+        }
+        for (; i < to; i++) {
+            long v = values[i];
+            s0 += v;
+            min0 = Math.min(min0, v);
+            max0 = Math.max(max0, v);
+            q0 += (double) v * v;
+        }
+        return new LongSummary(to - from, s0 + s1 + s2 + s3,
+                Math.min(Math.min(min0, min1), Math.min(min2, min3)),
+                Math.max(Math.max(max0, max1), Math.max(max2, max3)),
+                q0 + q1 + q2 + q3);
+    }
+
+    public static LongSummary parallelSummarize(long[] values) {
+        return chunks(values.length).parallel()
+                .mapToObj(c -> summarize(values, c * CHUNK, Math.min(values.length, (c + 1) * CHUNK)))
+                .reduce(LongSummary::combine)
+                .orElseGet(() -> summarize(values));
+    }
+
+    // ---- double
+
+    public static DoubleSummary summarize(double[] values) {
+        return summarize(values, 0, values.length);
+    }
+
+    // same result as Arrays.stream(values, from, to).summaryStatistics(): the compensated sum is added
+    // in array order, squares in two lanes beside it, all in locals instead of fields
+    public static DoubleSummary summarize(double[] values, int from, int to) {
+        checkRange(values.length, from, to);
+        double sum = 0, compensation = 0, simpleSum = 0;
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        double q0 = 0, c0 = 0, q1 = 0, c1 = 0;
+        int i = from;
+        for (int end = to - 1; i < end; i += 2) {
+            double v0 = values[i], v1 = values[i + 1];
+            double y = v0 - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            y = v1 - compensation;
+            t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            simpleSum += v0;
+            simpleSum += v1;
+            min = v0 < min ? v0 : min;
+            min = v1 < min ? v1 : min;
+            max = v0 > max ? v0 : max;
+            max = v1 > max ? v1 : max;
+            y = v0 * v0 - c0;
+            t = q0 + y;
+            c0 = (t - q0) - y;
+            q0 = t;
+            y = v1 * v1 - c1;
+            t = q1 + y;
+            c1 = (t - q1) - y;
+            q1 = t;
+        }
+        if (compareMissed(simpleSum, min, max)) {
+            min = min(values, from, i);
+            max = max(values, from, i);
+        }
+        DoubleSummary summary = new DoubleSummary(i - from, sum, compensation, simpleSum, min, max, q0, c0);
+        summary.addSquare(q1);
+        summary.addSquare(-c1);
+        if (i < to) {
+            summary.accept(values[i]);
+        }
+        return summary;
+    }
+
+    // not bit exact: four interleaved lanes change the order of the additions
+    public static DoubleSummary summarizeLanes(double[] values) {
+        return summarizeLanes(values, 0, values.length);
+    }
+
+    public static DoubleSummary summarizeLanes(double[] values, int from, int to) {
+        checkRange(values.length, from, to);
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, k0 = 0, k1 = 0, k2 = 0, k3 = 0, simpleSum = 0;
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        double q0 = 0, c0 = 0, q1 = 0, c1 = 0;
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            double v0 = values[i], v1 = values[i + 1], v2 = values[i + 2], v3 = values[i + 3];
+            double y = v0 - k0;
+            double t = s0 + y;
+            k0 = (t - s0) - y;
+            s0 = t;
+            y = v1 - k1;
+            t = s1 + y;
+            k1 = (t - s1) - y;
+            s1 = t;
+            y = v2 - k2;
+            t = s2 + y;
+            k2 = (t - s2) - y;
+            s2 = t;
+            y = v3 - k3;
+            t = s3 + y;
+            k3 = (t - s3) - y;
+            s3 = t;
+            simpleSum += (v0 + v1) + (v2 + v3);
+            min = v0 < min ? v0 : min;
+            min = v1 < min ? v1 : min;
+            min = v2 < min ? v2 : min;
+            min = v3 < min ? v3 : min;
+            max = v0 > max ? v0 : max;
+            max = v1 > max ? v1 : max;
+            max = v2 > max ? v2 : max;
+            max = v3 > max ? v3 : max;
+            y = (v0 * v0 + v1 * v1) - c0;
+            t = q0 + y;
+            c0 = (t - q0) - y;
+            q0 = t;
+            y = (v2 * v2 + v3 * v3) - c1;
+            t = q1 + y;
+            c1 = (t - q1) - y;
+            q1 = t;
+        }
+        if (compareMissed(simpleSum, min, max)) {
+            min = min(values, from, i);
+            max = max(values, from, i);
+        }
+        DoubleSummary summary = new DoubleSummary(i - from, s0, k0, simpleSum, min, max, q0, c0)
+                .combine(new DoubleSummary(0, s1, k1, 0, min, max, q1, c1))
+                .combine(new DoubleSummary(0, s2, k2, 0, min, max, 0, 0))
+                .combine(new DoubleSummary(0, s3, k3, 0, min, max, 0, 0));
+        for (; i < to; i++) {
+            summary.accept(values[i]);
+        }
+        return summary;
+    }
+
+    // Math.min / max are slow on doubles because of NaN and -0.0, so the loops compare instead.
+    // That only differs if a NaN was skipped (then the plain sum is NaN) or a zero of the wrong
+    // sign was kept (then min or max is zero), and only then the range is scanned again.
+    private static boolean compareMissed(double simpleSum, double min, double max) {
+        return Double.isNaN(simpleSum) || min == 0 || max == 0;
+    }
+
+    private static double min(double[] values, int from, int to) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    private static double max(double[] values, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    // not bit exact either, chunks are combined like a parallel stream's splits
+    public static DoubleSummary parallelSummarize(double[] values) {
+        return chunks(values.length).parallel()
+                .mapToObj(c -> summarize(values, c * CHUNK, Math.min(values.length, (c + 1) * CHUNK)))
+                .reduce(DoubleSummary::combine)
+                .orElseGet(DoubleSummary::new);
+    }
+
+    private static IntStream chunks(int length) {
+        return IntStream.range(0, (length + CHUNK - 1) / CHUNK);
+    }
+
+    private static void checkRange(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+        }
+    }
+
+    public static class IntSummary {
+        private final long count;
+        private final long sum;
+        private final int min;
+        private final int max;
+        private final double sumOfSquares;
+
+        IntSummary(long count, long sum, int min, int max, double sumOfSquares) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.sumOfSquares = sumOfSquares;
+        }
+
+        IntSummary combine(IntSummary other) {
+            return new IntSummary(count + other.count, sum + other.sum,
+                    Math.min(min, other.min), Math.max(max, other.max), sumOfSquares + other.sumOfSquares);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public double getAverage() {
+            return count > 0 ? (double) sum / count : 0.0d;
+        }
+
+        public double getSumOfSquares() {
+            return sumOfSquares;
+        }
+
+        public IntSummaryStatistics toStatistics() {
+            return new IntSummaryStatistics(count, min, max, sum);
+        }
+    }
+
+    public static class LongSummary {
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+        private final double sumOfSquares;
+
+        LongSummary(long count, long sum, long min, long max, double sumOfSquares) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.sumOfSquares = sumOfSquares;
+        }
+
+        LongSummary combine(LongSummary other) {
+            return new LongSummary(count + other.count, sum + other.sum,
+                    Math.min(min, other.min), Math.max(max, other.max), sumOfSquares + other.sumOfSquares);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getAverage() {
+            return count > 0 ? (double) sum / count : 0.0d;
+        }
+
+        public double getSumOfSquares() {
+            return sumOfSquares;
+        }
+
+        public LongSummaryStatistics toStatistics() {
+            return new LongSummaryStatistics(count, min, max, sum);
+        }
+    }
+
+    // The fields of DoubleSummaryStatistics: Kahan sum and compensation plus a plain sum that reports
+    // infinities the compensated one turns into NaN, with the same accept / combine / getSum arithmetic.
+    // The sum of squares is compensated the same way.
+    public static class DoubleSummary {
+        private long count;
+        private double sum;
+        private double sumCompensation;
+        private double simpleSum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double squares;
+        private double squaresCompensation;
+
+        DoubleSummary() {
+        }
+
+        DoubleSummary(long count, double sum, double sumCompensation, double simpleSum,
+                      double min, double max, double squares, double squaresCompensation) {
+            this.count = count;
+            this.sum = sum;
+            this.sumCompensation = sumCompensation;
+            this.simpleSum = simpleSum;
+            this.min = min;
+            this.max = max;
+            this.squares = squares;
+            this.squaresCompensation = squaresCompensation;
+        }
+
+        void accept(double value) {
+            count++;
+            simpleSum += value;
+            addSum(value);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            addSquare(value * value);
+        }
+
+        DoubleSummary combine(DoubleSummary other) {
+            count += other.count;
+            simpleSum += other.simpleSum;
+            addSum(other.sum);
+            addSum(-other.sumCompensation);
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            addSquare(other.squares);
+            addSquare(-other.squaresCompensation);
+            return this;
+        }
+
+        private void addSum(double value) {
+            double y = value - sumCompensation;
+            double t = sum + y;
+            sumCompensation = (t - sum) - y;
+            sum = t;
+        }
+
+        private void addSquare(double value) {
+            double y = value - squaresCompensation;
+            double t = squares + y;
+            squaresCompensation = (t - squares) - y;
+            squares = t;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            double compensated = sum - sumCompensation;
+            return Double.isNaN(compensated) && Double.isInfinite(simpleSum) ? simpleSum : compensated;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getAverage() {
+            return count > 0 ? getSum() / count : 0.0d;
+        }
+
+        public double getSumOfSquares() {
+            return squares - squaresCompensation;
+        }
+
+        // same count / sum / min / max; the compensation is folded into the sum,
+        // so values added to the copy later round like a fresh statistics
+        public DoubleSummaryStatistics toStatistics() {
+            double sum = getSum();
+            if (Double.isNaN(sum) && min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY) {
+                // both infinities were added: the constructor rejects a NaN sum next to non NaN bounds
+                DoubleSummaryStatistics statistics = new DoubleSummaryStatistics(count - 2, min, max, 0);
+                statistics.accept(Double.NEGATIVE_INFINITY);
+                statistics.accept(Double.POSITIVE_INFINITY);
+                return statistics;
+            }
+            return new DoubleSummaryStatistics(count, min, max, sum);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package optional;
+
+import java.util.Arrays;
+
+// k-way merge selection: after the winner leaf advanced, only log2(k) comparisons
+// on its path to the root are replayed. Exhausted leaves lose against everything,
+// equal heads are won by the lower leaf index so merging sorted runs stays stable.
+final class LoserTree {
+    private static final int NONE = -1;
+
+    interface Leaves {
+        boolean exhausted(int leaf);
+
+        int compare(int leaf, int other);
+    }
+
+    private final int k;
+    private final int[] tree;
+    private final Leaves leaves;
+
+    LoserTree(int k, Leaves leaves) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k: " + k);
+        }
+        this.k = k;
+        this.leaves = leaves;
+        this.tree = new int[k];
+        Arrays.fill(tree, NONE);
+        for (int leaf = k - 1; leaf >= 0; leaf--) {
+            adjust(leaf);
+        }
+    }
+
+    // NONE only exists while building and beats everything
+    private boolean beats(int a, int b) {
+        if (a == NONE) return true;
+        if (b == NONE) return false;
+        boolean aDone = leaves.exhausted(a);
+        boolean bDone = leaves.exhausted(b);
+        if (aDone || bDone) return !aDone || (bDone && a < b);
+        int c = leaves.compare(a, b);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+    private void adjust(int leaf) {
+        int winner = leaf;
+        for (int node = (leaf + k) >> 1; node > 0; node >>= 1) {
+            if (beats(tree[node], winner)) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    // leaf holding the smallest head, check leaves.exhausted(winner()) for the end of input
+    int winner() {
+        return tree[0];
+    }
+
+    // call after advancing the winner leaf
+    void replay() {
+        adjust(tree[0]);
+    }
+}
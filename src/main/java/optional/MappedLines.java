@@ -0,0 +1,192 @@
+package optional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Files.lines() replacement backed by memory mapped chunks.
+// Lines are handed out as ByteLine views, the heap only ever holds the views being processed.
+// Lines end at "\n", "\r\n" or a lone "\r", like BufferedReader.readLine().
+// The spliterator splits on line boundaries so .parallel() scales with the file size.
+public class MappedLines implements AutoCloseable {
+    static final int MAX_CHUNK = 1 << 30;
+    private static final int MIN_SPLIT = 1 << 14;
+
+    private final FileChannel channel;
+    private final ByteBuffer[] chunks;
+
+    private MappedLines(FileChannel channel, ByteBuffer[] chunks) {
+        this.channel = channel;
+        this.chunks = chunks;
+    }
+
+    public static MappedLines open(Path path) throws IOException {
+        return open(path, MAX_CHUNK);
+    }
+
+    // every chunk ends right after a line break (or at EOF), so a line never spans two chunks
+    static MappedLines open(Path path, int maxChunk) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            List<ByteBuffer> chunks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long length = Math.min(maxChunk, size - start);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int end = (int) length;
+                if (start + length < size) {
+                    end = lastBreak(mapped, (int) length) + 1;
+                    if (end == 0) {
+                        throw new IOException("line longer than " + maxChunk + " bytes at offset " + start);
+                    }
+                }
+                chunks.add(mapped.limit(end).slice());
+                start += end;
+            }
+            return new MappedLines(channel, chunks.toArray(new ByteBuffer[0]));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // a new line starts after i: '\n', or a '\r' not followed by '\n'.
+    // A '\r' in the last byte is not a break, the '\n' of a "\r\n" may be past limit.
+    private static boolean isBreak(ByteBuffer buffer, int i, int limit) {
+        byte b = buffer.get(i);
+        return b == '\n' || b == '\r' && i + 1 < limit && buffer.get(i + 1) != '\n';
+    }
+
+    private static int lastBreak(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (isBreak(buffer, i, limit)) return i;
+        }
+        return -1;
+    }
+
+    private static int nextBreak(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (isBreak(buffer, i, limit)) return i;
+        }
+        return -1;
+    }
+
+    private static int nextTerminator(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') return i;
+        }
+        return -1;
+    }
+
+    public Stream<ByteLine> lines() {
+        if (chunks.length == 0) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new LineSpliterator(chunks, 0, chunks.length - 1, 0, chunks[chunks.length - 1].limit()), false);
+    }
+
+    // UTF-8 decoded, same content as Files.lines(path, UTF_8)
+    public Stream<String> strings() {
+        return lines().map(ByteLine::toString);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static final class LineSpliterator implements Spliterator<ByteLine> {
+        private final ByteBuffer[] chunks;
+        private int chunk;
+        private final int lastChunk;
+        private int pos;
+        // end offset inside lastChunk
+        private final int end;
+
+        LineSpliterator(ByteBuffer[] chunks, int chunk, int lastChunk, int pos, int end) {
+            this.chunks = chunks;
+            this.chunk = chunk;
+            this.lastChunk = lastChunk;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        private int limit(int index) {
+            return index == lastChunk ? end : chunks[index].limit();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ByteLine> action) {
+            while (chunk <= lastChunk) {
+                ByteBuffer buffer = chunks[chunk];
+                int limit = limit(chunk);
+                if (pos < limit) {
+                    int terminator = nextTerminator(buffer, pos, limit);
+                    int lineEnd = terminator < 0 ? limit : terminator;
+                    int next = terminator < 0 ? limit : terminator + 1;
+                    if (terminator >= 0 && buffer.get(terminator) == '\r' && next < limit && buffer.get(next) == '\n') {
+                        next++;
+                    }
+                    ByteLine line = new ByteLine(buffer, pos, lineEnd - pos);
+                    pos = next;
+                    action.accept(line);
+                    return true;
+                }
+                chunk++;
+                pos = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<ByteLine> trySplit() {
+            if (chunk < lastChunk) {
+                int mid = (chunk + lastChunk + 1) >>> 1;
+                LineSpliterator prefix = new LineSpliterator(chunks, chunk, mid - 1, pos, chunks[mid - 1].limit());
+                chunk = mid;
+                pos = 0;
+                return prefix;
+            }
+            if (chunk > lastChunk || end - pos < MIN_SPLIT) {
+                return null;
+            }
+            int lineBreak = nextBreak(chunks[chunk], pos + (end - pos) / 2, end);
+            if (lineBreak < 0 || lineBreak + 1 >= end) {
+                return null;
+            }
+            LineSpliterator prefix = new LineSpliterator(chunks, chunk, chunk, pos, lineBreak + 1);
+            pos = lineBreak + 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long bytes = 0;
+            for (int i = chunk; i <= lastChunk; i++) {
+                bytes += limit(i) - (i == chunk ? pos : 0);
+            }
+            return bytes;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
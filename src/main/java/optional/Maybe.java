@@ -0,0 +1,52 @@
+package optional;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+// Optional chains as static null-safe steps on plain references, no wrapper objects at all.
+// Optional.ofNullable(modem).map(Modem::getPrice).filter(p -> p >= 10).isPresent()
+//   -> Maybe.matches(Maybe.map(modem, Modem::getPrice), p -> p >= 10)
+public final class Maybe {
+
+    private Maybe() {
+    }
+
+    public static <T, R> R map(T value, Function<? super T, ? extends R> mapper) {
+        return value == null ? null : mapper.apply(value);
+    }
+
+    public static <T> T filter(T value, Predicate<? super T> predicate) {
+        return value != null && predicate.test(value) ? value : null;
+    }
+
+    public static <T> boolean matches(T value, Predicate<? super T> predicate) {
+        return value != null && predicate.test(value);
+    }
+
+    public static <T> T orElse(T value, T other) {
+        return value != null ? value : other;
+    }
+
+    public static <T> T orElseGet(T value, Supplier<? extends T> supplier) {
+        return value != null ? value : supplier.get();
+    }
+
+    public static <T> int mapToIntOrElse(T value, ToIntFunction<? super T> mapper, int other) {
+        return value == null ? other : mapper.applyAsInt(value);
+    }
+
+    // null-safe unboxing getter, e.g. Maybe.intOrElse(modem, Modem::getPrice, 0)
+    public static <T> int intOrElse(T value, Function<? super T, Integer> getter, int other) {
+        if (value == null) {
+            return other;
+        }
+        Integer result = getter.apply(value);
+        return result == null ? other : result;
+    }
+
+    public static boolean inRange(Integer value, int min, int max) {
+        return value != null && value >= min && value <= max;
+    }
+}
@@ -0,0 +1,116 @@
+package optional;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.function.*;
+
+// OptionalInt with map/filter chains that never box.
+// Instances are small final value objects, so a chain that doesn't escape is scalar replaced by the JIT.
+// Every step allocates exactly one result, empty ones included: C2 gives up scalar replacement when a
+// new instance and a shared EMPTY meet in one variable, so only empty() returns the shared one.
+public final class MaybeInt {
+    private static final MaybeInt EMPTY = new MaybeInt(false, 0);
+
+    private final boolean present;
+    private final int value;
+
+    private MaybeInt(boolean present, int value) {
+        this.present = present;
+        this.value = value;
+    }
+
+    public static MaybeInt empty() {
+        return EMPTY;
+    }
+
+    public static MaybeInt of(int value) {
+        return new MaybeInt(true, value);
+    }
+
+    private static MaybeInt maybe(boolean present, int value) {
+        return new MaybeInt(present, present ? value : 0);
+    }
+
+    public static MaybeInt ofNullable(Integer value) {
+        return maybe(value != null, value != null ? value : 0);
+    }
+
+    // Optional.ofNullable(modem).map(Modem::getPrice) in one step
+    public static <T> MaybeInt ofNullable(T source, Function<? super T, Integer> getter) {
+        return ofNullable(source == null ? null : getter.apply(source));
+    }
+
+    public static <T> MaybeInt mapToInt(T source, ToIntFunction<? super T> getter) {
+        return maybe(source != null, source != null ? getter.applyAsInt(source) : 0);
+    }
+
+    public boolean isPresent() {
+        return present;
+    }
+
+    public boolean isEmpty() {
+        return !present;
+    }
+
+    public int getAsInt() {
+        if (!present) {
+            throw new NoSuchElementException("No value present");
+        }
+        return value;
+    }
+
+    public MaybeInt filter(IntPredicate predicate) {
+        return maybe(present && predicate.test(value), value);
+    }
+
+    public MaybeInt map(IntUnaryOperator mapper) {
+        return maybe(present, present ? mapper.applyAsInt(value) : 0);
+    }
+
+    public <R> R mapToObj(IntFunction<? extends R> mapper) {
+        return present ? mapper.apply(value) : null;
+    }
+
+    public void ifPresent(IntConsumer action) {
+        if (present) {
+            action.accept(value);
+        }
+    }
+
+    public int orElse(int other) {
+        return present ? value : other;
+    }
+
+    public int orElseGet(IntSupplier supplier) {
+        return present ? value : supplier.getAsInt();
+    }
+
+    public <X extends Throwable> int orElseThrow(Supplier<? extends X> exceptionSupplier) throws X {
+        if (present) {
+            return value;
+        }
+        throw exceptionSupplier.get();
+    }
+
+    public OptionalInt toOptionalInt() {
+        return present ? OptionalInt.of(value) : OptionalInt.empty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MaybeInt)) return false;
+        MaybeInt other = (MaybeInt) o;
+        return present == other.present && value == other.value;
+    }
+
+    @Override
+    public int hashCode() {
+        return present ? Integer.hashCode(value) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return present ? "MaybeInt[" + value + "]" : "MaybeInt.empty";
+    }
+}
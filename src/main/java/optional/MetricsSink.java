@@ -0,0 +1,6 @@
+package optional;
+
+// Receives per-stage numbers from StreamInstrument.publish()
+public interface MetricsSink {
+    void publish(String pipeline, StreamInstrument.StageMetrics metrics);
+}
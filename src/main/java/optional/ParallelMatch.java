@@ -0,0 +1,181 @@
+package optional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// anyMatch / allMatch / noneMatch / findFirst over a list with expensive predicates.
+// Workers take chunks in list order from one shared cursor and stop taking chunks as soon as
+// any worker found the deciding element, the flag is checked between chunks, not per element.
+// Every chunk that was taken is evaluated up to its own first match, and chunks are taken in order,
+// so the smallest deciding index found is the first one: findFirst needs no extra pass.
+// Chunk size comes from a cost hint (ns per predicate call) so one chunk is about CHUNK_NANOS of work.
+public class ParallelMatch {
+    static final long CHUNK_NANOS = 100_000;
+    static final long DEFAULT_NANOS_PER_ELEMENT = 100;
+    static final int MAX_CHUNK = 1 << 14;
+
+    private ParallelMatch() {
+    }
+
+    public static <T> Match<T> anyMatch(List<T> list, Predicate<? super T> predicate) {
+        return anyMatch(list, predicate, DEFAULT_NANOS_PER_ELEMENT);
+    }
+
+    public static <T> Match<T> anyMatch(List<T> list, Predicate<? super T> predicate, long nanosPerElement) {
+        return findFirst(list, predicate, nanosPerElement);
+    }
+
+    // result is true when nothing matched, index / value are the first counterexample otherwise
+    public static <T> Match<T> allMatch(List<T> list, Predicate<? super T> predicate) {
+        return allMatch(list, predicate, DEFAULT_NANOS_PER_ELEMENT);
+    }
+
+    public static <T> Match<T> allMatch(List<T> list, Predicate<? super T> predicate, long nanosPerElement) {
+        Match<T> counterexample = findFirst(list, predicate.negate(), nanosPerElement);
+        return counterexample.withResult(!counterexample.getResult());
+    }
+
+    public static <T> Match<T> noneMatch(List<T> list, Predicate<? super T> predicate, long nanosPerElement) {
+        Match<T> match = findFirst(list, predicate, nanosPerElement);
+        return match.withResult(!match.getResult());
+    }
+
+    // list.parallelStream().filter(predicate).findFirst()
+    public static <T> Match<T> findFirst(List<T> list, Predicate<? super T> predicate) {
+        return findFirst(list, predicate, DEFAULT_NANOS_PER_ELEMENT);
+    }
+
+    public static <T> Match<T> findFirst(List<T> list, Predicate<? super T> predicate, long nanosPerElement) {
+        if (!(list instanceof RandomAccess)) {
+            list = new ArrayList<>(list);
+        }
+        List<T> elements = list;
+        int size = elements.size();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkSize = chunkSize(size, parallelism, nanosPerElement);
+        int chunks = (size + chunkSize - 1) / chunkSize;
+
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+        LongAdder evaluated = new LongAdder();
+        Runnable worker = () -> {
+            long calls = 0;
+            int chunk;
+            // cancellation check at chunk boundaries only
+            while (first.get() == Integer.MAX_VALUE && (chunk = cursor.getAndIncrement()) < chunks) {
+                int from = chunk * chunkSize;
+                int to = Math.min(size, from + chunkSize);
+                for (int i = from; i < to; i++) {
+                    calls++;
+                    if (predicate.test(elements.get(i))) {
+                        first.accumulateAndGet(i, Math::min);
+                        break;
+                    }
+                }
+            }
+            evaluated.add(calls);
+        };
+
+        int workers = Math.max(1, Math.min(parallelism, chunks));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(ForkJoinTask.adapt(worker));
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+
+        int index = first.get();
+        long calls = evaluated.sum();
+        if (index == Integer.MAX_VALUE) {
+            return new Match<>(false, -1, null, calls, calls - size, chunkSize, Math.min(cursor.get(), chunks));
+        }
+        // a sequential scan stops after index + 1 calls
+        return new Match<>(true, index, elements.get(index), calls, calls - (index + 1L), chunkSize, Math.min(cursor.get(), chunks));
+    }
+
+    // about CHUNK_NANOS per chunk, but at least 4 chunks per worker so the load can balance
+    static int chunkSize(int size, int parallelism, long nanosPerElement) {
+        long byCost = CHUNK_NANOS / Math.max(1, nanosPerElement);
+        long byBalance = Math.max(1, size / (Math.max(1, parallelism) * 4L));
+        return (int) Math.max(1, Math.min(MAX_CHUNK, Math.min(byCost, byBalance)));
+    }
+
+    public static class Match<T> {
+        private final boolean result;
+        private final int index;
+        private final T value;
+        private final long evaluated;
+        private final long wasted;
+        private final int chunkSize;
+        private final int chunks;
+
+        Match(boolean result, int index, T value, long evaluated, long wasted, int chunkSize, int chunks) {
+            this.result = result;
+            this.index = index;
+            this.value = value;
+            this.evaluated = evaluated;
+            this.wasted = wasted;
+            this.chunkSize = chunkSize;
+            this.chunks = chunks;
+        }
+
+        Match<T> withResult(boolean result) {
+            return new Match<>(result, index, value, evaluated, wasted, chunkSize, chunks);
+        }
+
+        // what the matching Stream operation returns
+        public boolean getResult() {
+            return result;
+        }
+
+        // list index of the deciding element (first match or first counterexample), -1 if none
+        public int getIndex() {
+            return index;
+        }
+
+        public Optional<T> getValue() {
+            return Optional.ofNullable(value);
+        }
+
+        // predicate calls made in total
+        public long getEvaluated() {
+            return evaluated;
+        }
+
+        // predicate calls a sequential scan would not have made
+        public long getWasted() {
+            return wasted;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        // chunks taken by the workers
+        public int getChunks() {
+            return chunks;
+        }
+
+        @Override
+        public String toString() {
+            return "Match{" +
+                    "result=" + result +
+                    ", index=" + index +
+                    ", evaluated=" + evaluated +
+                    ", wasted=" + wasted +
+                    ", chunkSize=" + chunkSize +
+                    ", chunks=" + chunks +
+                    '}';
+        }
+    }
+}
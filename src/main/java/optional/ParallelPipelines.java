@@ -0,0 +1,134 @@
+package optional;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+// Runs parallel stream pipelines on a dedicated ForkJoinPool instead of the common pool.
+// A parallel stream executes its tasks in the pool of the thread that started the terminal
+// operation, so starting the pipeline from inside our pool keeps it away from commonPool().
+public class ParallelPipelines implements AutoCloseable {
+    private final String name;
+    private final ForkJoinPool pool;
+    private final Semaphore permits;
+    private final int maxPending;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    // maxPending: how many pipelines may be running or waiting at once, more are rejected
+    public ParallelPipelines(String name, int parallelism, int maxPending) {
+        if (parallelism < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("parallelism: " + parallelism + ", maxPending: " + maxPending);
+        }
+        this.name = name;
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxPending);
+        AtomicInteger workers = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(name + "-worker-" + workers.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // body should build the stream and run its terminal operation, e.g.
+    // pipelines.run("sum", () -> list.parallelStream().reduce(10, Integer::sum, Integer::sum))
+    public <T> T run(String pipeline, Supplier<T> body) {
+        if (!permits.tryAcquire()) {
+            stats(pipeline).rejected.increment();
+            throw new RejectedExecutionException("pipeline pool '" + name + "' has " + maxPending + " pending pipelines");
+        }
+        Stats stats = stats(pipeline);
+        long steals = pool.getStealCount();
+        long start = System.nanoTime();
+        try {
+            return pool.submit(body::get).join();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            permits.release();
+            stats.runs.increment();
+            stats.wallNanos.add(elapsed);
+            stats.maxWallNanos.accumulate(elapsed);
+            stats.steals.add(pool.getStealCount() - steals);
+        }
+    }
+
+    // convenience for pipelines that are already built, the stream is switched to parallel
+    public <T, S extends BaseStream<?, S>> T run(String pipeline, S stream, Function<S, T> terminal) {
+        return run(pipeline, () -> terminal.apply(stream.parallel()));
+    }
+
+    private Stats stats(String pipeline) {
+        return stats.computeIfAbsent(pipeline, k -> new Stats());
+    }
+
+    public Stats getStats(String pipeline) {
+        Stats result = stats.get(pipeline);
+        return result == null ? new Stats() : result;
+    }
+
+    public int getPending() {
+        return maxPending - permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    public static class Stats {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder wallNanos = new LongAdder();
+        private final LongAccumulator maxWallNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder steals = new LongAdder();
+
+        public long getRuns() {
+            return runs.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getWallNanos() {
+            return wallNanos.sum();
+        }
+
+        public long getMaxWallNanos() {
+            return maxWallNanos.get();
+        }
+
+        // steals seen by the pool while this pipeline ran, pipelines running at the same time share them
+        public long getSteals() {
+            return steals.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "runs=" + getRuns() +
+                    ", rejected=" + getRejected() +
+                    ", wallNanos=" + getWallNanos() +
+                    ", maxWallNanos=" + getMaxWallNanos() +
+                    ", steals=" + getSteals() +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package optional;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+// groupingBy / partitioningBy over a collection without merging maps.
+// A parallel Collectors.groupingBy builds one map per split and merges them pairwise, with many
+// keys the merges cost more than the grouping. Here the first pass computes every key and its
+// hash partition, a counting sort puts the row indices of each partition together (in encounter
+// order), and the second pass builds each partition's map on its own. A key lives in exactly one
+// partition, so the result is a read only view over the partition maps, nothing is merged.
+// The downstream collector's combiner is not called on this path.
+// Crossover: all rows of a key go through one partition, so with few keys (or one heavy key) the second
+// pass would run on a handful of workers. When the largest partition holds more than 2 / parallelism of
+// the rows (below roughly 2 * parallelism distinct keys for even keys; always for partitioningBy) the
+// rows are accumulated into per chunk maps instead and those are merged with the combiner, which is
+// cheap because there are only a few keys to merge.
+// groupingByConcurrent skips the sort: workers hand rows to lock striped maps in small batches,
+// values of a key are accumulated in no particular order.
+public class PartitionedGrouping {
+    static final int PARTITIONS_PER_WORKER = 4;
+    static final int SEQUENTIAL_THRESHOLD = 1 << 12;
+    static final int BATCH = 256;
+
+    private PartitionedGrouping() {
+    }
+
+    public static <T, K> Map<K, List<T>> groupingBy(Collection<? extends T> rows,
+                                                    Function<? super T, ? extends K> classifier) {
+        return groupingBy(rows, classifier, Collectors.toList());
+    }
+
+    public static <T, K, A, D> Map<K, D> groupingBy(Collection<? extends T> rows,
+                                                    Function<? super T, ? extends K> classifier,
+                                                    Collector<? super T, A, D> downstream) {
+        return groupingBy(rows, classifier, downstream, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T, K, A, D> Map<K, D> groupingBy(Collection<? extends T> rows,
+                                             Function<? super T, ? extends K> classifier,
+                                             Collector<? super T, A, D> downstream,
+                                             int parallelism) {
+        Object[] values = rows.toArray();
+        int size = values.length;
+        int partitions = partitions(size, parallelism);
+        int chunkSize = Math.max(1, (size + partitions - 1) / partitions);
+        int chunks = (size + chunkSize - 1) / chunkSize;
+
+        // pass 1: keys and partitions, counted per chunk
+        Object[] keys = new Object[size];
+        int[] partitionOf = new int[size];
+        int[][] counts = new int[chunks][partitions];
+        run(chunks, parallelism, chunk -> {
+            int[] count = counts[chunk];
+            int to = Math.min(size, (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < to; i++) {
+                Object key = Objects.requireNonNull(classifier.apply((T) values[i]), "element cannot be mapped to a null key");
+                int partition = partition(key, partitions);
+                keys[i] = key;
+                partitionOf[i] = partition;
+                count[partition]++;
+            }
+        });
+
+        if (isSkewed(counts, partitions, size, parallelism)) {
+            return mergeChunks(values, keys, chunks, chunkSize, downstream, parallelism);
+        }
+
+        // counts become write positions: partition by partition, chunk by chunk
+        int[] starts = new int[partitions + 1];
+        int position = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            starts[partition] = position;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int count = counts[chunk][partition];
+                counts[chunk][partition] = position;
+                position += count;
+            }
+        }
+        starts[partitions] = position;
+
+        int[] order = new int[size];
+        run(chunks, parallelism, chunk -> {
+            int[] next = counts[chunk];
+            int to = Math.min(size, (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < to; i++) {
+                order[next[partitionOf[i]]++] = i;
+            }
+        });
+
+        // pass 2: one map per partition
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        Map<K, D>[] maps = new Map[partitions];
+        run(partitions, parallelism, partition -> {
+            Map<K, A> map = new HashMap<>();
+            for (int j = starts[partition]; j < starts[partition + 1]; j++) {
+                int i = order[j];
+                A container = map.computeIfAbsent((K) keys[i], k -> supplier.get());
+                ((BiConsumer<A, Object>) accumulator).accept(container, values[i]);
+            }
+            maps[partition] = finish(map, downstream);
+        });
+        return new PartitionedMap<>(maps);
+    }
+
+    public static <T> Map<Boolean, List<T>> partitioningBy(Collection<? extends T> rows, Predicate<? super T> predicate) {
+        return partitioningBy(rows, predicate, Collectors.toList());
+    }
+
+    // both keys are always present, like Collectors.partitioningBy.
+    // Two keys are always below the crossover, so this accumulates per chunk and merges two entries per chunk.
+    public static <T, A, D> Map<Boolean, D> partitioningBy(Collection<? extends T> rows,
+                                                          Predicate<? super T> predicate,
+                                                          Collector<? super T, A, D> downstream) {
+        Map<Boolean, D> groups = groupingBy(rows, predicate::test, downstream);
+        Map<Boolean, D> result = new HashMap<>(4);
+        for (Boolean key : new Boolean[]{false, true}) {
+            D value = groups.get(key);
+            result.put(key, value != null ? value : downstream.finisher().apply(downstream.supplier().get()));
+        }
+        return result;
+    }
+
+    public static <T, K> Map<K, List<T>> groupingByConcurrent(Collection<? extends T> rows,
+                                                              Function<? super T, ? extends K> classifier) {
+        return groupingByConcurrent(rows, classifier, Collectors.toList());
+    }
+
+    // like Collectors.groupingByConcurrent: unordered, the values of a key come in any order
+    public static <T, K, A, D> Map<K, D> groupingByConcurrent(Collection<? extends T> rows,
+                                                              Function<? super T, ? extends K> classifier,
+                                                              Collector<? super T, A, D> downstream) {
+        return groupingByConcurrent(rows, classifier, downstream, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T, K, A, D> Map<K, D> groupingByConcurrent(Collection<? extends T> rows,
+                                                       Function<? super T, ? extends K> classifier,
+                                                       Collector<? super T, A, D> downstream,
+                                                       int parallelism) {
+        Object[] values = rows.toArray();
+        int size = values.length;
+        int stripes = partitions(size, parallelism);
+        int chunkSize = Math.max(1, (size + stripes - 1) / stripes);
+        int chunks = (size + chunkSize - 1) / chunkSize;
+
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, Object> accumulator = (BiConsumer<A, Object>) downstream.accumulator();
+        Map<K, A>[] maps = new Map[stripes];
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            maps[stripe] = new HashMap<>();
+        }
+        run(chunks, parallelism, chunk -> {
+            // one lock per BATCH rows of a stripe instead of one per row
+            Object[][] batchKeys = new Object[stripes][];
+            Object[][] batchValues = new Object[stripes][];
+            int[] batched = new int[stripes];
+            int to = Math.min(size, (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < to; i++) {
+                Object key = Objects.requireNonNull(classifier.apply((T) values[i]), "element cannot be mapped to a null key");
+                int stripe = partition(key, stripes);
+                if (batchKeys[stripe] == null) {
+                    batchKeys[stripe] = new Object[BATCH];
+                    batchValues[stripe] = new Object[BATCH];
+                }
+                int n = batched[stripe];
+                batchKeys[stripe][n] = key;
+                batchValues[stripe][n] = values[i];
+                if (++n == BATCH) {
+                    flush(maps[stripe], batchKeys[stripe], batchValues[stripe], n, supplier, accumulator);
+                    n = 0;
+                }
+                batched[stripe] = n;
+            }
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                if (batched[stripe] > 0) {
+                    flush(maps[stripe], batchKeys[stripe], batchValues[stripe], batched[stripe], supplier, accumulator);
+                }
+            }
+        });
+
+        Map<K, D>[] finished = new Map[stripes];
+        run(stripes, parallelism, stripe -> finished[stripe] = finish(maps[stripe], downstream));
+        return new PartitionedMap<>(finished);
+    }
+
+    // true when the largest partition would keep the second pass on fewer than half the workers
+    private static boolean isSkewed(int[][] counts, int partitions, int size, int parallelism) {
+        if (partitions <= 1) {
+            return false;
+        }
+        long largest = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            long rows = 0;
+            for (int[] count : counts) {
+                rows += count[partition];
+            }
+            largest = Math.max(largest, rows);
+        }
+        return largest * parallelism > 2L * size;
+    }
+
+    // low cardinality: one map per chunk, merged in chunk order so lists keep encounter order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T, K, A, D> Map<K, D> mergeChunks(Object[] values, Object[] keys, int chunks, int chunkSize,
+                                                      Collector<? super T, A, D> downstream, int parallelism) {
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, Object> accumulator = (BiConsumer<A, Object>) downstream.accumulator();
+        Map<K, A>[] maps = new Map[chunks];
+        run(chunks, parallelism, chunk -> {
+            Map<K, A> map = new HashMap<>();
+            int to = Math.min(values.length, (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < to; i++) {
+                accumulator.accept(map.computeIfAbsent((K) keys[i], k -> supplier.get()), values[i]);
+            }
+            maps[chunk] = map;
+        });
+        BinaryOperator<A> combiner = downstream.combiner();
+        Map<K, A> merged = maps[0];
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            maps[chunk].forEach((key, container) -> merged.merge(key, container, combiner));
+        }
+        return new PartitionedMap<>(new Map[]{finish(merged, downstream)});
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, A> void flush(Map<K, A> map, Object[] keys, Object[] values, int length,
+                                     Supplier<A> supplier, BiConsumer<A, Object> accumulator) {
+        synchronized (map) {
+            for (int i = 0; i < length; i++) {
+                accumulator.accept(map.computeIfAbsent((K) keys[i], k -> supplier.get()), values[i]);
+                keys[i] = null;
+                values[i] = null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, A, D> Map<K, D> finish(Map<K, A> map, Collector<?, A, D> downstream) {
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return (Map<K, D>) map;
+        }
+        Function<A, D> finisher = downstream.finisher();
+        ((Map<K, Object>) map).replaceAll((key, container) -> finisher.apply((A) container));
+        return (Map<K, D>) map;
+    }
+
+    static int partitions(int size, int parallelism) {
+        return size < SEQUENTIAL_THRESHOLD || parallelism <= 1 ? 1 : parallelism * PARTITIONS_PER_WORKER;
+    }
+
+    // multiply-shift on the high bits, so keys of one partition still spread over the HashMap's low bits
+    static int partition(Object key, int partitions) {
+        long mixed = (key.hashCode() * 0x9E3779B9) & 0xFFFFFFFFL;
+        return (int) ((mixed * partitions) >>> 32);
+    }
+
+    // tasks 0 until count taken from a shared cursor by up to parallelism workers
+    private static void run(int count, int parallelism, IntConsumer task) {
+        if (count <= 1 || parallelism <= 1) {
+            for (int i = 0; i < count; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+        AtomicInteger cursor = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = cursor.getAndIncrement()) < count) {
+                task.accept(i);
+            }
+        };
+        int workers = Math.min(parallelism, count);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(ForkJoinTask.adapt(worker));
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+    }
+
+    // read only view over maps with disjoint keys, get() goes straight to the key's partition
+    static final class PartitionedMap<K, V> extends AbstractMap<K, V> {
+        private final Map<K, V>[] partitions;
+        private final int size;
+
+        PartitionedMap(Map<K, V>[] partitions) {
+            this.partitions = partitions;
+            int total = 0;
+            for (Map<K, V> partition : partitions) {
+                total += partition.size();
+            }
+            this.size = total;
+        }
+
+        int getPartitionCount() {
+            return partitions.length;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public V get(Object key) {
+            return key == null ? null : partitions[partition(key, partitions.length)].get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && partitions[partition(key, partitions.length)].containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new Iterator<Entry<K, V>>() {
+                        private int partition;
+                        private Iterator<Entry<K, V>> current = partitions[0].entrySet().iterator();
+
+                        @Override
+                        public boolean hasNext() {
+                            while (!current.hasNext()) {
+                                if (++partition >= partitions.length) {
+                                    return false;
+                                }
+                                current = partitions[partition].entrySet().iterator();
+                            }
+                            return true;
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<K, V> entry = current.next();
+                            return new SimpleImmutableEntry<>(entry);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package optional;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+
+// Columnar Product rows: amount column + dictionary encoded name column.
+// Aggregations run over the int columns, nothing is allocated per row.
+public class ProductBatch {
+    private int[] amounts;
+    private int[] nameIds;
+    private int size;
+
+    private String[] dictionary = new String[16];
+    private int dictionarySize;
+    private final Map<String, Integer> nameToId = new HashMap<>();
+
+    public ProductBatch() {
+        this(16);
+    }
+
+    public ProductBatch(int capacity) {
+        amounts = new int[Math.max(capacity, 1)];
+        nameIds = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int amount, String name) {
+        if (size == amounts.length) {
+            amounts = Arrays.copyOf(amounts, size * 2);
+            nameIds = Arrays.copyOf(nameIds, size * 2);
+        }
+        amounts[size] = amount;
+        nameIds[size] = nameId(name);
+        size++;
+    }
+
+    private int nameId(String name) {
+        Integer id = nameToId.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (dictionarySize == dictionary.length) {
+            dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+        }
+        dictionary[dictionarySize] = name;
+        nameToId.put(name, dictionarySize);
+        return dictionarySize++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int amount(int index) {
+        checkIndex(index);
+        return amounts[index];
+    }
+
+    public int nameId(int index) {
+        checkIndex(index);
+        return nameIds[index];
+    }
+
+    public String name(int index) {
+        return dictionary[nameId(index)];
+    }
+
+    public String nameOf(int nameId) {
+        if (nameId < 0 || nameId >= dictionarySize) {
+            throw new IndexOutOfBoundsException("nameId: " + nameId);
+        }
+        return dictionary[nameId];
+    }
+
+    public int distinctNames() {
+        return dictionarySize;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    // Collectors.summarizingInt(Product::getAmount)
+    public IntSummaryStatistics amountStatistics() {
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            int amount = amounts[i];
+            sum += amount;
+            if (amount < min) min = amount;
+            if (amount > max) max = amount;
+        }
+        return new IntSummaryStatistics(size, min, max, sum);
+    }
+
+    // Collectors.groupingBy(Product::getAmount)
+    public IntAggregateMap groupByAmount(int topK) {
+        return IntAggregateMap.aggregate(amounts, amounts, size, topK);
+    }
+
+    // Collectors.groupingBy(Product::getName), keys are name ids
+    public IntAggregateMap groupByName(int topK) {
+        return IntAggregateMap.aggregate(nameIds, amounts, size, topK);
+    }
+}
@@ -0,0 +1,380 @@
+package optional;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Off-heap Product rows (int amount + String name) in direct ByteBuffers, the GC sees a few page objects
+// instead of two objects per row.
+// Rows are fixed 16 byte slots: amount (int), name length (int), name offset (long) into a name arena
+// holding the UTF-8 bytes. Both live in pages because a ByteBuffer is limited to 2 GB,
+// a name never spans two arena pages. A page starts at INITIAL_PAGE_BYTES and doubles up to the full
+// page size while it fills, so a small store holds a few KB of direct memory, not a full page.
+// Stream views split by row index and decode lazily: amounts() never touches the names,
+// names are ByteLine views until someone asks for a String.
+// save(path) writes one file, load(path) maps it back read only.
+// Appends are single threaded, reads may run in parallel with each other.
+public class ProductStore {
+    private static final int SLOT = 16;
+    private static final long MAGIC = 0x50524f4453544f52L;
+    private static final int HEADER = 40;
+    private static final int DEFAULT_ROW_PAGE_BITS = 20;
+    private static final int DEFAULT_ARENA_PAGE_BITS = 26;
+    private static final int INITIAL_PAGE_BYTES = 4096;
+    private static final ByteLine EMPTY_NAME = new ByteLine(ByteBuffer.allocate(0), 0, 0);
+
+    private final int rowPageBits;
+    private final int arenaPageBits;
+    private final List<ByteBuffer> rowPages = new ArrayList<>();
+    private final List<ByteBuffer> arenaPages = new ArrayList<>();
+    private final boolean readOnly;
+    private long size;
+    private long arenaSize;
+
+    public ProductStore() {
+        this(DEFAULT_ROW_PAGE_BITS, DEFAULT_ARENA_PAGE_BITS);
+    }
+
+    // 2^rowPageBits rows per row page, 2^arenaPageBits name bytes per arena page
+    ProductStore(int rowPageBits, int arenaPageBits) {
+        this(rowPageBits, arenaPageBits, false);
+    }
+
+    private ProductStore(int rowPageBits, int arenaPageBits, boolean readOnly) {
+        if (rowPageBits < 1 || rowPageBits + 4 > 30 || arenaPageBits < 4 || arenaPageBits > 30) {
+            throw new IllegalArgumentException("rowPageBits: " + rowPageBits + ", arenaPageBits: " + arenaPageBits);
+        }
+        this.rowPageBits = rowPageBits;
+        this.arenaPageBits = arenaPageBits;
+        this.readOnly = readOnly;
+    }
+
+    // returns the index of the new row
+    public long append(int amount, String name) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("store is mapped read only");
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        long nameOffset = allocateName(bytes.length);
+        if (bytes.length > 0) {
+            int nameSlot = arenaSlot(nameOffset);
+            ByteBuffer arena = page(arenaPages, (int) (nameOffset >>> arenaPageBits), nameSlot + bytes.length, 1 << arenaPageBits);
+            for (int i = 0; i < bytes.length; i++) {
+                arena.put(nameSlot + i, bytes[i]);
+            }
+        }
+
+        long index = size;
+        int slot = rowSlot(index);
+        ByteBuffer rows = page(rowPages, (int) (index >>> rowPageBits), slot + SLOT, SLOT << rowPageBits);
+        rows.putInt(slot, amount);
+        rows.putInt(slot + 4, bytes.length);
+        rows.putLong(slot + 8, nameOffset);
+        size++;
+        return index;
+    }
+
+    // reserves length bytes that do not cross an arena page
+    private long allocateName(int length) {
+        int pageSize = 1 << arenaPageBits;
+        if (length > pageSize) {
+            throw new IllegalArgumentException("name of " + length + " bytes is longer than an arena page");
+        }
+        long offset = arenaSize;
+        if (arenaSlot(offset) + length > pageSize) {
+            offset = ((offset >>> arenaPageBits) + 1) << arenaPageBits;
+        }
+        arenaSize = offset + length;
+        return offset;
+    }
+
+    // pages.get(page) with at least needed bytes, created or grown by doubling up to pageSize.
+    // Growing copies the page, ByteLines handed out earlier keep the old copy, which holds the same bytes.
+    private static ByteBuffer page(List<ByteBuffer> pages, int page, int needed, int pageSize) {
+        ByteBuffer current = page < pages.size() ? pages.get(page) : null;
+        if (current != null && current.capacity() >= needed) {
+            return current;
+        }
+        int capacity = current == null ? Math.min(pageSize, INITIAL_PAGE_BYTES) : current.capacity();
+        while (capacity < needed) {
+            capacity = Math.min(pageSize, capacity * 2);
+        }
+        ByteBuffer grown = allocate(capacity);
+        if (current == null) {
+            pages.add(grown);
+        } else {
+            ByteBuffer old = current.duplicate();
+            old.clear();
+            grown.put(old).clear();
+            pages.set(page, grown);
+        }
+        return grown;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    private int rowSlot(long index) {
+        return (int) (index & ((1L << rowPageBits) - 1)) * SLOT;
+    }
+
+    private int arenaSlot(long offset) {
+        return (int) (offset & ((1L << arenaPageBits) - 1));
+    }
+
+    private ByteBuffer rowPage(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return rowPages.get((int) (index >>> rowPageBits));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int amount(long index) {
+        return rowPage(index).getInt(rowSlot(index));
+    }
+
+    // zero copy view of the UTF-8 name
+    public ByteLine nameBytes(long index) {
+        ByteBuffer rows = rowPage(index);
+        int slot = rowSlot(index);
+        int length = rows.getInt(slot + 4);
+        if (length == 0) {
+            return EMPTY_NAME;
+        }
+        long offset = rows.getLong(slot + 8);
+        return new ByteLine(arenaPages.get((int) (offset >>> arenaPageBits)), arenaSlot(offset), length);
+    }
+
+    public String name(long index) {
+        return nameBytes(index).toString();
+    }
+
+    // off-heap bytes held by the pages, including unused page tails
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer page : rowPages) bytes += page.capacity();
+        for (ByteBuffer page : arenaPages) bytes += page.capacity();
+        return bytes;
+    }
+
+    public interface RowMapper<T> {
+        T map(int amount, ByteLine name);
+    }
+
+    // e.g. store.stream((amount, name) -> new Product(amount, name.toString())).parallel()
+    public <T> Stream<T> stream(RowMapper<? extends T> mapper) {
+        return StreamSupport.stream(new RowSpliterator<>(0, size, mapper), false);
+    }
+
+    public Stream<String> names() {
+        return stream((amount, name) -> name.toString());
+    }
+
+    public IntStream amounts() {
+        return StreamSupport.intStream(new AmountSpliterator(0, size), false);
+    }
+
+    // ---- persistence
+
+    // header: magic, rows, arena size, row page bits, arena page bits
+    // then the row slots back to back, then every arena page at its page aligned position
+    public void save(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putLong(size).putLong(arenaSize).putInt(rowPageBits).putInt(arenaPageBits)
+                    .putInt(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 1).flip();
+            writeFully(channel, header, 0);
+
+            long position = HEADER;
+            for (int page = 0; page < rowPages.size(); page++) {
+                long rows = Math.min(1L << rowPageBits, size - ((long) page << rowPageBits));
+                ByteBuffer slice = rowPages.get(page).duplicate();
+                slice.position(0).limit((int) (rows * SLOT));
+                writeFully(channel, slice, position);
+                position += rows * SLOT;
+            }
+            long arenaStart = arenaStart(size);
+            for (int page = 0; page < arenaPages.size(); page++) {
+                ByteBuffer slice = arenaPages.get(page).duplicate();
+                slice.position(0).limit(Math.min(slice.capacity(), arenaPageLength(page, arenaSize)));
+                writeFully(channel, slice, arenaStart + ((long) page << arenaPageBits));
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static long arenaStart(long rows) {
+        long end = HEADER + rows * SLOT;
+        return (end + 4095) & ~4095L;
+    }
+
+    private int arenaPageLength(int page, long arenaSize) {
+        return (int) Math.min(1L << arenaPageBits, arenaSize - ((long) page << arenaPageBits));
+    }
+
+    // maps the file, nothing is copied to the heap; the returned store is read only
+    public static ProductStore load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER || header.getLong() != MAGIC) {
+                throw new IOException("not a product store: " + path);
+            }
+            long size = header.getLong();
+            long arenaSize = header.getLong();
+            int rowPageBits = header.getInt();
+            int arenaPageBits = header.getInt();
+            ByteOrder order = header.getInt() == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+
+            ProductStore store = new ProductStore(rowPageBits, arenaPageBits, true);
+            long position = HEADER;
+            for (long first = 0; first < size; first += 1L << rowPageBits) {
+                long rows = Math.min(1L << rowPageBits, size - first);
+                store.rowPages.add(channel.map(FileChannel.MapMode.READ_ONLY, position, rows * SLOT).order(order));
+                position += rows * SLOT;
+            }
+            long arenaStart = arenaStart(size);
+            int arenaPages = (int) ((arenaSize + (1L << arenaPageBits) - 1) >>> arenaPageBits);
+            for (int page = 0; page < arenaPages; page++) {
+                int length = store.arenaPageLength(page, arenaSize);
+                store.arenaPages.add(channel.map(FileChannel.MapMode.READ_ONLY, arenaStart + ((long) page << arenaPageBits), length));
+            }
+            store.size = size;
+            store.arenaSize = arenaSize;
+            return store;
+        }
+    }
+
+    // ---- spliterators over [from, to) row indexes, split in halves
+
+    private final class RowSpliterator<T> implements Spliterator<T> {
+        private long from;
+        private final long to;
+        private final RowMapper<? extends T> mapper;
+
+        RowSpliterator(long from, long to, RowMapper<? extends T> mapper) {
+            this.from = from;
+            this.to = to;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (from >= to) {
+                return false;
+            }
+            action.accept(mapper.map(amount(from), nameBytes(from)));
+            from++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (long i = from; i < to; i++) {
+                action.accept(mapper.map(amount(i), nameBytes(i)));
+            }
+            from = to;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            long middle = (from + to) >>> 1;
+            if (middle <= from) {
+                return null;
+            }
+            Spliterator<T> prefix = new RowSpliterator<>(from, middle, mapper);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+
+    private final class AmountSpliterator implements Spliterator.OfInt {
+        private long from;
+        private final long to;
+
+        AmountSpliterator(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (from >= to) {
+                return false;
+            }
+            action.accept(amount(from++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            // page at a time, no bounds check per row
+            long i = from;
+            from = to;
+            while (i < to) {
+                ByteBuffer page = rowPages.get((int) (i >>> rowPageBits));
+                long pageEnd = Math.min(to, ((i >>> rowPageBits) + 1) << rowPageBits);
+                for (int slot = rowSlot(i), end = slot + (int) (pageEnd - i) * SLOT; slot < end; slot += SLOT) {
+                    action.accept(page.getInt(slot));
+                }
+                i = pageEnd;
+            }
+        }
+
+        @Override
+        public OfInt trySplit() {
+            long middle = (from + to) >>> 1;
+            if (middle <= from) {
+                return null;
+            }
+            OfInt prefix = new AmountSpliterator(from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
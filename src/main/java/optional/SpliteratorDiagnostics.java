@@ -0,0 +1,144 @@
+package optional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.StreamSupport;
+
+// How a parallel stream would cut a source: the split tree is replayed like the stream framework does
+// (split while a part is larger than size / (4 * parallelism) and trySplit() gives something),
+// then every leaf is traversed to get its real element count and weight.
+// The weight is the work per element, e.g. List::size for a source that is flatMap'ed later,
+// the largest leaf weight bounds the parallel speedup: total weight / largest leaf.
+// Both analyses traverse the source, so they take a supplier of fresh spliterators.
+public class SpliteratorDiagnostics {
+
+    private SpliteratorDiagnostics() {
+    }
+
+    public static <T> Report analyze(Supplier<? extends Spliterator<T>> source, ToLongFunction<? super T> weight) {
+        Report report = splitTree(source.get(), weight, ForkJoinPool.getCommonPoolParallelism());
+        report.workerLoad = workerLoad(source.get(), weight);
+        return report;
+    }
+
+    public static <T> Report splitTree(Spliterator<T> spliterator, ToLongFunction<? super T> weight, int parallelism) {
+        Report report = new Report();
+        // like AbstractTask.suggestTargetSize, for unknown sizes this leaves the batches of an iterator source alone
+        long threshold = Math.max(spliterator.estimateSize() / (4L * Math.max(1, parallelism)), 1);
+        split(spliterator, weight, threshold, 0, report);
+        return report;
+    }
+
+    private static <T> void split(Spliterator<T> spliterator, ToLongFunction<? super T> weight, long threshold,
+                                  int depth, Report report) {
+        while (spliterator.estimateSize() > threshold) {
+            Spliterator<T> prefix = spliterator.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            split(prefix, weight, threshold, depth + 1, report);
+            depth++;
+        }
+        long[] leaf = new long[2];
+        spliterator.forEachRemaining(item -> {
+            leaf[0]++;
+            leaf[1] += weight.applyAsLong(item);
+        });
+        report.addLeaf(depth, leaf[0], leaf[1]);
+    }
+
+    // weight handled per worker thread when the source runs as a parallel stream
+    public static <T> Map<String, Long> workerLoad(Spliterator<T> spliterator, ToLongFunction<? super T> weight) {
+        Map<String, LongAdder> load = new ConcurrentHashMap<>();
+        StreamSupport.stream(spliterator, true).forEach(item ->
+                load.computeIfAbsent(Thread.currentThread().getName(), k -> new LongAdder()).add(weight.applyAsLong(item)));
+        Map<String, Long> result = new TreeMap<>();
+        load.forEach((thread, sum) -> result.put(thread, sum.sum()));
+        return result;
+    }
+
+    public static class Report {
+        private final List<Integer> depths = new ArrayList<>();
+        private final List<Long> leafSizes = new ArrayList<>();
+        private final List<Long> leafWeights = new ArrayList<>();
+        private long totalWeight;
+        private Map<String, Long> workerLoad = Collections.emptyMap();
+
+        void addLeaf(int depth, long size, long weight) {
+            depths.add(depth);
+            leafSizes.add(size);
+            leafWeights.add(weight);
+            totalWeight += weight;
+        }
+
+        public int getLeaves() {
+            return leafSizes.size();
+        }
+
+        public int getMaxDepth() {
+            return depths.stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+
+        public int getMinDepth() {
+            return depths.stream().mapToInt(Integer::intValue).min().orElse(0);
+        }
+
+        // elements per leaf in encounter order
+        public List<Long> getLeafSizes() {
+            return Collections.unmodifiableList(leafSizes);
+        }
+
+        public List<Long> getLeafWeights() {
+            return Collections.unmodifiableList(leafWeights);
+        }
+
+        public long getTotalWeight() {
+            return totalWeight;
+        }
+
+        public long getMaxLeafWeight() {
+            return leafWeights.stream().mapToLong(Long::longValue).max().orElse(0);
+        }
+
+        // largest leaf / average leaf, 1.0 is perfectly even
+        public double getImbalance() {
+            if (leafWeights.isEmpty() || totalWeight == 0) {
+                return 1.0;
+            }
+            return getMaxLeafWeight() / ((double) totalWeight / leafWeights.size());
+        }
+
+        // the best speedup any number of workers can get from this split tree
+        public double getSpeedupBound() {
+            long max = getMaxLeafWeight();
+            return max == 0 ? 1.0 : (double) totalWeight / max;
+        }
+
+        // empty unless built by analyze(...)
+        public Map<String, Long> getWorkerLoad() {
+            return Collections.unmodifiableMap(workerLoad);
+        }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "leaves=" + getLeaves() +
+                    ", depth=" + getMinDepth() + ".." + getMaxDepth() +
+                    ", totalWeight=" + totalWeight +
+                    ", maxLeafWeight=" + getMaxLeafWeight() +
+                    ", imbalance=" + String.format("%.2f", getImbalance()) +
+                    ", speedupBound=" + String.format("%.2f", getSpeedupBound()) +
+                    ", workerLoad=" + workerLoad +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package optional;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Replacement for peek(System.out::println): wraps the functions passed to a pipeline
+// and counts elements in/out per named stage. One call in sampleRate is also timed and
+// its allocation measured with the thread allocated-bytes counter.
+//   StreamInstrument in = new StreamInstrument("upper", sink, true, 64);
+//   in.source("concat", concatStream).filter(in.filter("three", s -> s.contains("three"))).map(in.map("upper", String::toUpperCase))
+// A disabled instrument returns the original functions, so the pipeline runs unchanged.
+public class StreamInstrument {
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private final String pipeline;
+    private final MetricsSink sink;
+    private final boolean enabled;
+    private final int sampleRate;
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+
+    public StreamInstrument(String pipeline, MetricsSink sink, boolean enabled, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sampleRate: " + sampleRate);
+        }
+        this.pipeline = pipeline;
+        this.sink = sink;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private Stage stage(String name) {
+        return stages.computeIfAbsent(name, Stage::new);
+    }
+
+    // ---- Stream
+
+    public <T> Stream<T> source(String name, Stream<T> stream) {
+        if (!enabled) return stream;
+        Stage stage = stage(name);
+        return stream.peek(t -> stage.passed());
+    }
+
+    public <T> Predicate<T> filter(String name, Predicate<T> predicate) {
+        if (!enabled) return predicate;
+        Stage stage = stage(name);
+        return t -> {
+            long start = stage.start(sampleRate);
+            boolean matched = predicate.test(t);
+            stage.end(start, matched);
+            return matched;
+        };
+    }
+
+    public <T, R> Function<T, R> map(String name, Function<T, R> mapper) {
+        if (!enabled) return mapper;
+        Stage stage = stage(name);
+        return t -> {
+            long start = stage.start(sampleRate);
+            R result = mapper.apply(t);
+            stage.end(start, true);
+            return result;
+        };
+    }
+
+    public <T> ToIntFunction<T> mapToInt(String name, ToIntFunction<T> mapper) {
+        if (!enabled) return mapper;
+        Stage stage = stage(name);
+        return t -> {
+            long start = stage.start(sampleRate);
+            int result = mapper.applyAsInt(t);
+            stage.end(start, true);
+            return result;
+        };
+    }
+
+    // ---- IntStream
+
+    public IntStream source(String name, IntStream stream) {
+        if (!enabled) return stream;
+        Stage stage = stage(name);
+        return stream.peek(i -> stage.passed());
+    }
+
+    public IntPredicate intFilter(String name, IntPredicate predicate) {
+        if (!enabled) return predicate;
+        Stage stage = stage(name);
+        return i -> {
+            long start = stage.start(sampleRate);
+            boolean matched = predicate.test(i);
+            stage.end(start, matched);
+            return matched;
+        };
+    }
+
+    public IntUnaryOperator intMap(String name, IntUnaryOperator mapper) {
+        if (!enabled) return mapper;
+        Stage stage = stage(name);
+        return i -> {
+            long start = stage.start(sampleRate);
+            int result = mapper.applyAsInt(i);
+            stage.end(start, true);
+            return result;
+        };
+    }
+
+    public StageMetrics getMetrics(String name) {
+        Stage stage = stages.get(name);
+        return stage == null ? new StageMetrics(name, 0, 0, 0, 0, 0) : stage.snapshot();
+    }
+
+    public void publish() {
+        for (Stage stage : stages.values()) {
+            sink.publish(pipeline, stage.snapshot());
+        }
+    }
+
+    private static final class Stage {
+        private final String name;
+        private final LongAdder in = new LongAdder();
+        private final LongAdder out = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+        private final LongAdder sampledBytes = new LongAdder();
+        // allocation counter of the sampled call, per thread because stages run in parallel
+        private final ThreadLocal<long[]> allocated = ThreadLocal.withInitial(() -> new long[1]);
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void passed() {
+            in.increment();
+            out.increment();
+        }
+
+        // 0 means not sampled
+        long start(int sampleRate) {
+            if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+                return 0;
+            }
+            if (ALLOCATION != null) {
+                allocated.get()[0] = ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return System.nanoTime() | 1;
+        }
+
+        void end(long start, boolean passed) {
+            if (start != 0) {
+                sampledNanos.add(System.nanoTime() - start);
+                samples.increment();
+                if (ALLOCATION != null) {
+                    sampledBytes.add(ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated.get()[0]);
+                }
+            }
+            in.increment();
+            if (passed) out.increment();
+        }
+
+        StageMetrics snapshot() {
+            return new StageMetrics(name, in.sum(), out.sum(), samples.sum(), sampledNanos.sum(), sampledBytes.sum());
+        }
+    }
+
+    public static class StageMetrics {
+        private final String stage;
+        private final long in;
+        private final long out;
+        private final long samples;
+        private final long sampledNanos;
+        private final long sampledBytes;
+
+        StageMetrics(String stage, long in, long out, long samples, long sampledNanos, long sampledBytes) {
+            this.stage = stage;
+            this.in = in;
+            this.out = out;
+            this.samples = samples;
+            this.sampledNanos = sampledNanos;
+            this.sampledBytes = sampledBytes;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public long getIn() {
+            return in;
+        }
+
+        public long getOut() {
+            return out;
+        }
+
+        // out / in, 1.0 for map stages
+        public double getSelectivity() {
+            return in == 0 ? 1.0d : (double) out / in;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        // sampled average scaled to every element
+        public long getEstimatedNanos() {
+            return scale(sampledNanos);
+        }
+
+        public long getEstimatedAllocatedBytes() {
+            return scale(sampledBytes);
+        }
+
+        // sampled * in / samples, multiplied first so sub-nanosecond / sub-byte averages still count,
+        // in double because sampled * in can overflow a long
+        private long scale(long sampled) {
+            return samples == 0 ? 0 : (long) ((double) sampled * in / samples);
+        }
+
+        @Override
+        public String toString() {
+            return "StageMetrics{" +
+                    "stage='" + stage + '\'' +
+                    ", in=" + in +
+                    ", out=" + out +
+                    ", selectivity=" + getSelectivity() +
+                    ", estimatedNanos=" + getEstimatedNanos() +
+                    ", estimatedAllocatedBytes=" + getEstimatedAllocatedBytes() +
+                    '}';
+        }
+    }
+}
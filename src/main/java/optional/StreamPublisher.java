@@ -0,0 +1,492 @@
+package optional;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Flow.Publisher over a Stream or Spliterator: items are pulled only as far as request(n) allows,
+// so a slow subscriber holds back the source instead of the source blocking the caller.
+// Emission runs on an executor (virtual threads when the runtime has them, else the common pool)
+// and gives the thread back after every batchSize items.
+// map / filter / flatMap stages run on the same executor and buffer at most batchSize items each:
+// a stage asks upstream for batchSize items and asks for more only after it passed them on.
+// A Stream can be consumed once, so the publisher accepts a single subscriber.
+public class StreamPublisher<T> implements Flow.Publisher<T> {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static volatile Executor defaultExecutor;
+
+    private final Flow.Publisher<T> delegate;
+    private final Executor executor;
+    private final int batchSize;
+
+    private StreamPublisher(Flow.Publisher<T> delegate, Executor executor, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        }
+        this.delegate = delegate;
+        this.executor = Objects.requireNonNull(executor);
+        this.batchSize = batchSize;
+    }
+
+    public static <T> StreamPublisher<T> from(Stream<T> stream) {
+        return from(stream, defaultExecutor(), DEFAULT_BATCH_SIZE);
+    }
+
+    // the stream is closed when it completes, fails or is cancelled, e.g. Files.lines(...)
+    public static <T> StreamPublisher<T> from(Stream<T> stream, Executor executor, int batchSize) {
+        return new StreamPublisher<>(new Source<>(stream.spliterator(), stream::close, executor, batchSize), executor, batchSize);
+    }
+
+    public static <T> StreamPublisher<T> from(Spliterator<T> spliterator, Executor executor, int batchSize) {
+        return new StreamPublisher<>(new Source<>(spliterator, () -> {
+        }, executor, batchSize), executor, batchSize);
+    }
+
+    // one onNext per `size` source items, the last list may be shorter
+    public static <T> StreamPublisher<List<T>> batches(Stream<T> stream, int size, Executor executor) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size: " + size);
+        }
+        Spliterator<T> spliterator = stream.spliterator();
+        Spliterator<List<T>> lists = new Spliterators.AbstractSpliterator<List<T>>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super List<T>> action) {
+                List<T> batch = new ArrayList<>(size);
+                while (batch.size() < size && spliterator.tryAdvance(batch::add)) {
+                }
+                if (batch.isEmpty()) {
+                    return false;
+                }
+                action.accept(batch);
+                return true;
+            }
+        };
+        return new StreamPublisher<>(new Source<>(lists, stream::close, executor, DEFAULT_BATCH_SIZE), executor, DEFAULT_BATCH_SIZE);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() on 21+, ForkJoinPool.commonPool() before that
+    public static Executor defaultExecutor() {
+        Executor executor = defaultExecutor;
+        if (executor == null) {
+            try {
+                Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                executor = (Executor) virtual.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                executor = ForkJoinPool.commonPool();
+            }
+            defaultExecutor = executor;
+        }
+        return executor;
+    }
+
+    public <R> StreamPublisher<R> map(Function<? super T, ? extends R> mapper) {
+        return stage(item -> Collections.singleton(mapper.apply(item)).iterator());
+    }
+
+    public StreamPublisher<T> filter(Predicate<? super T> predicate) {
+        return stage(item -> predicate.test(item) ? Collections.singleton(item).iterator() : Collections.emptyIterator());
+    }
+
+    // the inner stream is drained lazily against downstream demand and closed when done,
+    // also when the subscription is cancelled or fails half way through it
+    public <R> StreamPublisher<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
+        return stage(item -> new InnerIterator<R>(mapper.apply(item)));
+    }
+
+    // stages added after this one run on the given executor
+    public StreamPublisher<T> on(Executor executor) {
+        return new StreamPublisher<>(delegate, executor, batchSize);
+    }
+
+    private <R> StreamPublisher<R> stage(Function<? super T, ? extends Iterator<? extends R>> operator) {
+        return new StreamPublisher<>(new Stage<>(delegate, operator, executor, batchSize), executor, batchSize);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        delegate.subscribe(Objects.requireNonNull(subscriber));
+    }
+
+    private static long addCap(AtomicLong requested, long n) {
+        for (;;) {
+            long current = requested.get();
+            long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            if (requested.compareAndSet(current, next)) {
+                return current;
+            }
+        }
+    }
+
+    private static final class Source<E> implements Flow.Publisher<E> {
+        private final Spliterator<E> spliterator;
+        private final Runnable onClose;
+        private final Executor executor;
+        private final int batchSize;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        Source(Spliterator<E> spliterator, Runnable onClose, Executor executor, int batchSize) {
+            this.spliterator = spliterator;
+            this.onClose = onClose;
+            this.executor = executor;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super E> subscriber) {
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("a stream publisher accepts a single subscriber"));
+                return;
+            }
+            subscriber.onSubscribe(new SourceSubscription<>(subscriber, spliterator, onClose, executor, batchSize));
+        }
+    }
+
+    // emits from the spliterator on the executor while there is demand, one batch per task
+    private static final class SourceSubscription<E> implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super E> subscriber;
+        private final Spliterator<E> spliterator;
+        private final Runnable onClose;
+        private final Executor executor;
+        private final int batchSize;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        SourceSubscription(Flow.Subscriber<? super E> subscriber, Spliterator<E> spliterator, Runnable onClose,
+                           Executor executor, int batchSize) {
+            this.subscriber = subscriber;
+            this.spliterator = spliterator;
+            this.onClose = onClose;
+            this.executor = executor;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request must be positive (rule 3.9): " + n);
+            } else {
+                addCap(requested, n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                if (cancelled) {
+                    onClose.run();
+                    return;
+                }
+                Throwable invalid = invalidRequest;
+                if (invalid != null) {
+                    cancelled = true;
+                    onClose.run();
+                    subscriber.onError(invalid);
+                    return;
+                }
+                long r = requested.get();
+                long emitted = 0;
+                try {
+                    while (emitted < r && emitted < batchSize && !cancelled) {
+                        if (!spliterator.tryAdvance(subscriber::onNext)) {
+                            cancelled = true;
+                            onClose.run();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        emitted++;
+                    }
+                } catch (Throwable e) {
+                    cancelled = true;
+                    onClose.run();
+                    subscriber.onError(e);
+                    return;
+                }
+                if (emitted > 0 && r != Long.MAX_VALUE) {
+                    r = requested.addAndGet(-emitted);
+                }
+                if (emitted == batchSize && r > 0 && !cancelled) {
+                    // give the thread back between batches, wip stays non-zero so nobody else schedules us
+                    executor.execute(this);
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class InnerIterator<R> implements Iterator<R>, AutoCloseable {
+        private final Stream<? extends R> inner;
+        private final Iterator<? extends R> iterator;
+        private boolean closed;
+
+        InnerIterator(Stream<? extends R> inner) {
+            this.inner = inner;
+            this.iterator = inner.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!closed && iterator.hasNext()) {
+                return true;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public R next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                inner.close();
+            }
+        }
+    }
+
+    private static final class Stage<T, R> implements Flow.Publisher<R> {
+        private final Flow.Publisher<T> upstream;
+        private final Function<? super T, ? extends Iterator<? extends R>> operator;
+        private final Executor executor;
+        private final int prefetch;
+
+        Stage(Flow.Publisher<T> upstream, Function<? super T, ? extends Iterator<? extends R>> operator,
+              Executor executor, int prefetch) {
+            this.upstream = upstream;
+            this.operator = operator;
+            this.executor = executor;
+            this.prefetch = prefetch;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super R> subscriber) {
+            upstream.subscribe(new StageSubscriber<>(subscriber, operator, executor, prefetch));
+        }
+    }
+
+    // subscriber to upstream and subscription for downstream, the operator runs in drain() on the executor
+    private static final class StageSubscriber<T, R> implements Flow.Subscriber<T>, Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super R> downstream;
+        private final Function<? super T, ? extends Iterator<? extends R>> operator;
+        private final Executor executor;
+        private final int prefetch;
+        private final int limit;
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        // set in onSubscribe, read by request / cancel on whatever thread the downstream uses
+        private volatile Flow.Subscription upstream;
+        private Iterator<? extends R> current;
+        private int consumed;
+        private boolean terminated;
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private volatile Throwable invalidRequest;
+
+        StageSubscriber(Flow.Subscriber<? super R> downstream, Function<? super T, ? extends Iterator<? extends R>> operator,
+                        Executor executor, int prefetch) {
+            this.downstream = downstream;
+            this.operator = operator;
+            this.executor = executor;
+            this.prefetch = prefetch;
+            this.limit = Math.max(1, prefetch - (prefetch >> 2));
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            downstream.onSubscribe(this);
+            subscription.request(prefetch);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (buffered.incrementAndGet() > prefetch) {
+                upstream.cancel();
+                onError(new IllegalStateException("upstream emitted more than requested (rule 1.1)"));
+                return;
+            }
+            queue.offer(item);
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request must be positive (rule 3.9): " + n);
+            } else {
+                addCap(requested, n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                if (terminated || cancelled) {
+                    queue.clear();
+                    closeCurrent(null);
+                } else {
+                    drain();
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void drain() {
+            Throwable invalid = invalidRequest;
+            if (invalid != null) {
+                fail(invalid);
+                return;
+            }
+            long r = requested.get();
+            long emitted = 0;
+            try {
+                while (emitted != r && !cancelled) {
+                    if (current != null && current.hasNext()) {
+                        downstream.onNext(Objects.requireNonNull(current.next(), "stages must not emit null (rule 2.13)"));
+                        emitted++;
+                        continue;
+                    }
+                    current = null;
+                    T item = queue.poll();
+                    if (item == null) {
+                        break;
+                    }
+                    buffered.decrementAndGet();
+                    if (++consumed == limit) {
+                        consumed = 0;
+                        upstream.request(limit);
+                    }
+                    current = operator.apply(item);
+                }
+                if (done && queue.isEmpty() && (current == null || !current.hasNext()) && !cancelled) {
+                    terminated = true;
+                    Throwable e = error;
+                    if (e != null) {
+                        downstream.onError(e);
+                    } else {
+                        downstream.onComplete();
+                    }
+                }
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+            if (emitted > 0 && r != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+        }
+
+        private void fail(Throwable e) {
+            terminated = true;
+            upstream.cancel();
+            closeCurrent(e);
+            downstream.onError(e);
+        }
+
+        // closes a flatMap inner stream that was not drained to the end, e.g. Files.lines(...)
+        private void closeCurrent(Throwable failure) {
+            Iterator<? extends R> iterator = current;
+            current = null;
+            if (iterator instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) iterator).close();
+                } catch (Exception e) {
+                    // after cancel there is nobody left to tell
+                    if (failure != null) {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package optional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+// Interns strings to dense int codes 0, 1, 2, ... so a column of repeated names is an int[]
+// and every distinct name is held once, together with its UTF-8 bytes for joining.
+// string -> code goes through lock striped HashMaps, code -> string through append only pages
+// that are read without locking. A code is drawn from nextCode, its slots are written, and only
+// then does it become part of size(): published advances in code order, so every code below
+// size() has its value visible to readers.
+public class StringDictionary {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final Stripe[] stripes;
+    private final AtomicInteger nextCode = new AtomicInteger();
+    private final AtomicInteger published = new AtomicInteger();
+    private final Object pagesLock = new Object();
+    private volatile String[][] values = new String[1][PAGE_SIZE];
+    private volatile byte[][][] bytes = new byte[1][PAGE_SIZE][];
+
+    public StringDictionary() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public StringDictionary(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency: " + concurrency);
+        }
+        int size = Integer.highestOneBit(concurrency * 2 - 1);
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static final class Stripe {
+        final Map<String, Integer> codes = new HashMap<>();
+    }
+
+    private Stripe stripe(String value) {
+        int h = value.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    public int intern(String value) {
+        Stripe stripe = stripe(value);
+        synchronized (stripe) {
+            Integer code = stripe.codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int newCode = nextCode.getAndIncrement();
+            store(newCode, value);
+            publish(newCode);
+            stripe.codes.put(value, newCode);
+            return newCode;
+        }
+    }
+
+    // code of value, -1 if it was never interned
+    public int code(String value) {
+        Stripe stripe = stripe(value);
+        synchronized (stripe) {
+            Integer code = stripe.codes.get(value);
+            return code == null ? -1 : code;
+        }
+    }
+
+    private void store(int code, String value) {
+        int page = code >>> PAGE_BITS;
+        if (page >= values.length) {
+            synchronized (pagesLock) {
+                String[][] currentValues = values;
+                if (page >= currentValues.length) {
+                    int pages = Math.max(page + 1, currentValues.length * 2);
+                    String[][] grownValues = Arrays.copyOf(currentValues, pages);
+                    byte[][][] grownBytes = Arrays.copyOf(bytes, pages);
+                    for (int i = currentValues.length; i < pages; i++) {
+                        grownValues[i] = new String[PAGE_SIZE];
+                        grownBytes[i] = new byte[PAGE_SIZE][];
+                    }
+                    bytes = grownBytes;
+                    values = grownValues;
+                }
+            }
+        }
+        int slot = code & (PAGE_SIZE - 1);
+        bytes[page][slot] = value.getBytes(StandardCharsets.UTF_8);
+        values[page][slot] = value;
+    }
+
+    // interns on other stripes may have drawn smaller codes and still be storing them,
+    // wait for those so published never covers an unwritten slot
+    private void publish(int code) {
+        while (published.get() != code) {
+            Thread.yield();
+        }
+        published.set(code + 1);
+    }
+
+    public String get(int code) {
+        checkCode(code);
+        return values[code >>> PAGE_BITS][code & (PAGE_SIZE - 1)];
+    }
+
+    // UTF-8 encoded value, shared: do not modify
+    byte[] bytes(int code) {
+        checkCode(code);
+        return bytes[code >>> PAGE_BITS][code & (PAGE_SIZE - 1)];
+    }
+
+    public int size() {
+        return published.get();
+    }
+
+    // codes whose value matches, the predicate runs once per distinct value instead of once per row
+    public BitSet matching(Predicate<? super String> predicate) {
+        // size is read before the pages, so they cover every published code
+        int size = size();
+        String[][] pages = values;
+        BitSet matching = new BitSet(size);
+        for (int code = 0; code < size; code++) {
+            if (predicate.test(pages[code >>> PAGE_BITS][code & (PAGE_SIZE - 1)])) {
+                matching.set(code);
+            }
+        }
+        return matching;
+    }
+
+    private void checkCode(int code) {
+        if (code < 0 || code >= published.get()) {
+            throw new IndexOutOfBoundsException("code: " + code + ", size: " + size());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package optional;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Pattern.compile(", ").splitAsStream(...) without compiling per record and without a String per token.
+// Tokenizers are cached by regex; a regex without metacharacters is split by plain indexOf,
+// the regex engine is only used for real patterns.
+// Tokens are CharBuffer views over a CharSequence input or ByteLine views over a ByteBuffer input,
+// forEach(...) hands out (source, start, end) and allocates nothing per token.
+// Same results as Pattern.split / splitAsStream: trailing empty tokens are dropped and
+// an input without any delimiter is one token.
+public class Tokenizer {
+    private static final String META = "\\^$.|?*+()[]{}";
+    private static final DefaultCache<String, Tokenizer> CACHE = new DefaultCache<>(256, Duration.ofDays(1));
+
+    private final String delimiter;
+    private final byte[] delimiterBytes;
+    private final Pattern pattern;
+
+    private Tokenizer(String delimiter, Pattern pattern) {
+        this.delimiter = delimiter;
+        this.delimiterBytes = delimiter == null ? null : delimiter.getBytes(StandardCharsets.UTF_8);
+        this.pattern = pattern;
+    }
+
+    // cached, e.g. Tokenizer.of(", ").split("one, two, three")
+    public static Tokenizer of(String regex) {
+        return CACHE.get(regex, () -> isLiteral(regex) ? literal(regex) : new Tokenizer(null, Pattern.compile(regex)));
+    }
+
+    public static Tokenizer literal(String delimiter) {
+        if (delimiter.isEmpty()) {
+            throw new IllegalArgumentException("empty delimiter");
+        }
+        return new Tokenizer(delimiter, null);
+    }
+
+    public static Tokenizer of(Pattern pattern) {
+        return new Tokenizer(null, pattern);
+    }
+
+    private static boolean isLiteral(String regex) {
+        if (regex.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < regex.length(); i++) {
+            if (META.indexOf(regex.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isLiteral() {
+        return delimiter != null;
+    }
+
+    public interface TokenConsumer {
+        void accept(CharSequence source, int start, int end);
+    }
+
+    // returns the number of tokens
+    public int forEach(CharSequence input, TokenConsumer consumer) {
+        Cursor cursor = new Cursor(finder(input), input.length());
+        int count = 0;
+        while (cursor.next()) {
+            consumer.accept(input, cursor.start, cursor.end);
+            count++;
+        }
+        return count;
+    }
+
+    public Stream<CharSequence> split(CharSequence input) {
+        Cursor cursor = new Cursor(finder(input), input.length());
+        return stream(cursor, () -> CharBuffer.wrap(input, cursor.start, cursor.end));
+    }
+
+    // regex delimiters see the bytes as Latin-1 chars (ByteLine.asLatin1), so they should be ASCII
+    public Stream<ByteLine> split(ByteBuffer input) {
+        int base = input.position();
+        int length = input.remaining();
+        Finder finder;
+        if (delimiter != null) {
+            finder = new ByteFinder(input, base, length, delimiterBytes);
+        } else {
+            finder = new MatcherFinder(pattern.matcher(new ByteLine(input, base, length).asLatin1()));
+        }
+        Cursor cursor = new Cursor(finder, length);
+        return stream(cursor, () -> new ByteLine(input, base + cursor.start, cursor.end - cursor.start));
+    }
+
+    private static <T> Stream<T> stream(Cursor cursor, Supplier<T> token) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!cursor.next()) {
+                    return false;
+                }
+                action.accept(token.get());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    private Finder finder(CharSequence input) {
+        if (delimiter == null) {
+            return new MatcherFinder(pattern.matcher(input));
+        }
+        if (input instanceof String) {
+            return new StringFinder((String) input, delimiter);
+        }
+        return new CharFinder(input, delimiter);
+    }
+
+    // next delimiter at or after `from`: returns its start and sets matchEnd, -1 if there is none
+    private abstract static class Finder {
+        int matchEnd;
+
+        abstract int find(int from);
+    }
+
+    private static final class StringFinder extends Finder {
+        private final String input;
+        private final String delimiter;
+
+        StringFinder(String input, String delimiter) {
+            this.input = input;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        int find(int from) {
+            int index = delimiter.length() == 1 ? input.indexOf(delimiter.charAt(0), from) : input.indexOf(delimiter, from);
+            matchEnd = index + delimiter.length();
+            return index;
+        }
+    }
+
+    private static final class CharFinder extends Finder {
+        private final CharSequence input;
+        private final String delimiter;
+
+        CharFinder(CharSequence input, String delimiter) {
+            this.input = input;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        int find(int from) {
+            char first = delimiter.charAt(0);
+            int last = input.length() - delimiter.length();
+            for (int i = from; i <= last; i++) {
+                if (input.charAt(i) != first) continue;
+                int j = 1;
+                while (j < delimiter.length() && input.charAt(i + j) == delimiter.charAt(j)) j++;
+                if (j == delimiter.length()) {
+                    matchEnd = i + j;
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class ByteFinder extends Finder {
+        private final ByteBuffer input;
+        private final int base;
+        private final int length;
+        private final byte[] delimiter;
+
+        ByteFinder(ByteBuffer input, int base, int length, byte[] delimiter) {
+            this.input = input;
+            this.base = base;
+            this.length = length;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        int find(int from) {
+            byte first = delimiter[0];
+            int last = length - delimiter.length;
+            for (int i = from; i <= last; i++) {
+                if (input.get(base + i) != first) continue;
+                int j = 1;
+                while (j < delimiter.length && input.get(base + i + j) == delimiter[j]) j++;
+                if (j == delimiter.length) {
+                    matchEnd = i + j;
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class MatcherFinder extends Finder {
+        private final Matcher matcher;
+
+        MatcherFinder(Matcher matcher) {
+            this.matcher = matcher;
+        }
+
+        @Override
+        int find(int from) {
+            while (matcher.find()) {
+                // like Pattern.split: a zero width match at the beginning gives no leading empty token
+                if (matcher.end() == 0) continue;
+                matchEnd = matcher.end();
+                return matcher.start();
+            }
+            return -1;
+        }
+    }
+
+    // Pattern.split(input, 0) semantics on top of the raw delimiter positions
+    private static final class Cursor {
+        private final Finder finder;
+        private final int length;
+        private int position;
+        private boolean finished;
+        private boolean matchedAny;
+        private int pendingEmpty;
+        private int queuedStart = -1;
+        private int queuedEnd;
+        int start;
+        int end;
+
+        Cursor(Finder finder, int length) {
+            this.finder = finder;
+            this.length = length;
+        }
+
+        boolean next() {
+            for (;;) {
+                if (queuedStart >= 0) {
+                    if (pendingEmpty > 0) {
+                        // empty tokens in the middle are kept
+                        pendingEmpty--;
+                        start = end = queuedStart;
+                        return true;
+                    }
+                    start = queuedStart;
+                    end = queuedEnd;
+                    queuedStart = -1;
+                    return true;
+                }
+                if (finished) {
+                    return false;
+                }
+                int tokenStart = position;
+                int tokenEnd;
+                int match = finder.find(position);
+                if (match < 0) {
+                    finished = true;
+                    tokenEnd = length;
+                    if (!matchedAny) {
+                        // no delimiter at all: the input is the only token, even when empty
+                        start = 0;
+                        end = length;
+                        return true;
+                    }
+                } else {
+                    matchedAny = true;
+                    tokenEnd = match;
+                    position = finder.matchEnd;
+                }
+                if (tokenEnd == tokenStart) {
+                    pendingEmpty++;
+                } else {
+                    queuedStart = tokenStart;
+                    queuedEnd = tokenEnd;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package optional;
+
+import java.util.*;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+// sorted(comparator).limit(k) in O(n log k) time and O(k) memory with a bounded heap.
+// Results are identical to sorted().limit(k), including the order of equal elements,
+// also for parallel streams: each split keeps its own heap and the heaps are merged.
+// Heaps start at INITIAL_CAPACITY slots and double up to k, a split with few elements stays small
+// even when k is large.
+public class TopK {
+    static final int INITIAL_CAPACITY = 16;
+
+    private TopK() {
+    }
+
+    // same as stream.sorted(comparator).limit(k)
+    public static <T> Stream<T> sortedLimit(Stream<T> stream, Comparator<? super T> comparator, int k) {
+        return stream.collect(smallest(k, comparator)).stream();
+    }
+
+    public static <T> Collector<T, ?, List<T>> smallest(int k, Comparator<? super T> comparator) {
+        checkK(k);
+        return Collector.of(() -> new Heap<T>(k, comparator), Heap::offer, Heap::merge, Heap::toSortedList);
+    }
+
+    public static <T> Collector<T, ?, List<T>> largest(int k, Comparator<? super T> comparator) {
+        return smallest(k, comparator.reversed());
+    }
+
+    // same as stream.sorted().limit(k).toArray()
+    public static int[] smallest(IntStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new IntHeap(k, false), IntHeap::offer, IntHeap::merge).toSortedArray();
+    }
+
+    public static int[] largest(IntStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new IntHeap(k, true), IntHeap::offer, IntHeap::merge).toSortedArray();
+    }
+
+    public static long[] smallest(LongStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new LongHeap(k, false), LongHeap::offer, LongHeap::merge).toSortedArray();
+    }
+
+    public static long[] largest(LongStream stream, int k) {
+        checkK(k);
+        return stream.collect(() -> new LongHeap(k, true), LongHeap::offer, LongHeap::merge).toSortedArray();
+    }
+
+    // doubled, at most k
+    private static int capacity(int length, int k) {
+        return (int) Math.min(k, Math.max(1L, length * 2L));
+    }
+
+    private static void checkK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k: " + k);
+        }
+    }
+
+    // max-heap of the k smallest (element, encounter index) pairs, the root is the first to drop
+    static final class Heap<T> {
+        private final int k;
+        private final Comparator<? super T> comparator;
+        private Object[] items;
+        private long[] order;
+        private int size;
+        private long seen;
+
+        Heap(int k, Comparator<? super T> comparator) {
+            this.k = k;
+            this.comparator = comparator;
+            this.items = new Object[Math.min(k, INITIAL_CAPACITY)];
+            this.order = new long[items.length];
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compare(int i, T item, long index) {
+            int c = comparator.compare((T) items[i], item);
+            return c != 0 ? c : Long.compare(order[i], index);
+        }
+
+        void offer(T item) {
+            add(item, seen++);
+        }
+
+        private void add(T item, long index) {
+            if (size < k) {
+                if (size == items.length) {
+                    int capacity = capacity(items.length, k);
+                    items = Arrays.copyOf(items, capacity);
+                    order = Arrays.copyOf(order, capacity);
+                }
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (compare(parent, item, index) >= 0) break;
+                    items[i] = items[parent];
+                    order[i] = order[parent];
+                    i = parent;
+                }
+                items[i] = item;
+                order[i] = index;
+            } else if (k > 0 && compare(0, item, index) > 0) {
+                siftDown(item, index);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void siftDown(T item, long index) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && compare(child + 1, (T) items[child], order[child]) > 0) child++;
+                if (compare(child, item, index) <= 0) break;
+                items[i] = items[child];
+                order[i] = order[child];
+                i = child;
+            }
+            items[i] = item;
+            order[i] = index;
+        }
+
+        // other holds the elements encountered after this heap's elements
+        @SuppressWarnings("unchecked")
+        Heap<T> merge(Heap<T> other) {
+            for (int i = 0; i < other.size; i++) {
+                add((T) other.items[i], seen + other.order[i]);
+            }
+            seen += other.seen;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> toSortedList() {
+            Integer[] slots = new Integer[size];
+            for (int i = 0; i < size; i++) slots[i] = i;
+            Arrays.sort(slots, (a, b) -> compare(a, (T) items[b], order[b]));
+            List<T> result = new ArrayList<>(size);
+            for (Integer slot : slots) {
+                result.add((T) items[slot]);
+            }
+            return result;
+        }
+    }
+
+    static final class IntHeap {
+        private final int k;
+        private final boolean largest;
+        private int[] heap;
+        private int size;
+
+        IntHeap(int k, boolean largest) {
+            this.k = k;
+            this.largest = largest;
+            this.heap = new int[Math.min(k, INITIAL_CAPACITY)];
+        }
+
+        // true when a should be dropped before b
+        private boolean worse(int a, int b) {
+            return largest ? a < b : a > b;
+        }
+
+        void offer(int value) {
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, capacity(heap.length, k));
+                }
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(value, heap[parent])) break;
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = value;
+            } else if (k > 0 && worse(heap[0], value)) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && worse(heap[child + 1], heap[child])) child++;
+                    if (!worse(heap[child], value)) break;
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = value;
+            }
+        }
+
+        void merge(IntHeap other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+        }
+
+        int[] toSortedArray() {
+            int[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result);
+            if (largest) {
+                for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                    int tmp = result[i];
+                    result[i] = result[j];
+                    result[j] = tmp;
+                }
+            }
+            return result;
+        }
+    }
+
+    static final class LongHeap {
+        private final int k;
+        private final boolean largest;
+        private long[] heap;
+        private int size;
+
+        LongHeap(int k, boolean largest) {
+            this.k = k;
+            this.largest = largest;
+            this.heap = new long[Math.min(k, INITIAL_CAPACITY)];
+        }
+
+        private boolean worse(long a, long b) {
+            return largest ? a < b : a > b;
+        }
+
+        void offer(long value) {
+            if (size < k) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, capacity(heap.length, k));
+                }
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(value, heap[parent])) break;
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = value;
+            } else if (k > 0 && worse(heap[0], value)) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && worse(heap[child + 1], heap[child])) child++;
+                    if (!worse(heap[child], value)) break;
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = value;
+            }
+        }
+
+        void merge(LongHeap other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result);
+            if (largest) {
+                for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                    long tmp = result[i];
+                    result[i] = result[j];
+                    result[j] = tmp;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package optional;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// groupingBy(..., summarizingInt(...)) over tumbling or sliding windows of an unbounded source,
+// e.g. Stream.generate(...) without limit().
+// Windows are cut into panes of gcd(size, slide) ticks, each element is aggregated into exactly one pane
+// and a window is the combination of its panes, so overlapping windows share the pane work.
+// Only the panes of windows that are still open are kept.
+// A tick is the element index for count windows and the clock time (ms) for time windows.
+public class WindowAggregator<T, K> {
+    private final long size;
+    private final long slide;
+    private final long pane;
+    private final LongSupplier clock;
+    private final Function<? super T, ? extends K> classifier;
+    private final ToIntFunction<? super T> value;
+
+    private final ArrayDeque<Pane<K>> panes = new ArrayDeque<>();
+    private long nextWindow;
+    private long count;
+    private long originTick = -1;
+
+    private WindowAggregator(long size, long slide, LongSupplier clock,
+                             Function<? super T, ? extends K> classifier, ToIntFunction<? super T> value) {
+        if (size < 1 || slide < 1 || slide > size) {
+            throw new IllegalArgumentException("size: " + size + ", slide: " + slide);
+        }
+        this.size = size;
+        this.slide = slide;
+        this.pane = gcd(size, slide);
+        this.clock = clock;
+        this.classifier = classifier;
+        this.value = value;
+    }
+
+    // windows of `size` elements starting every `slide` elements, tumbling when slide == size
+    public static <T, K> WindowAggregator<T, K> countWindows(long size, long slide,
+                                                            Function<? super T, ? extends K> classifier,
+                                                            ToIntFunction<? super T> value) {
+        return new WindowAggregator<>(size, slide, null, classifier, value);
+    }
+
+    // windows by clock time in ms, the first window starts at the clock time of the first element
+    public static <T, K> WindowAggregator<T, K> timeWindows(Duration size, Duration slide, LongSupplier clockMillis,
+                                                           Function<? super T, ? extends K> classifier,
+                                                           ToIntFunction<? super T> value) {
+        return new WindowAggregator<>(size.toMillis(), slide.toMillis(), clockMillis, classifier, value);
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static final class Pane<K> {
+        final long index;
+        final Map<K, IntSummaryStatistics> groups = new HashMap<>();
+
+        Pane(long index) {
+            this.index = index;
+        }
+    }
+
+    private long tick() {
+        if (clock == null) {
+            return count;
+        }
+        long now = clock.getAsLong();
+        if (originTick < 0) {
+            originTick = now;
+        }
+        return Math.max(0, now - originTick);
+    }
+
+    public void accept(T item, Consumer<Window<K>> emit) {
+        long tick = tick();
+        close(tick, emit);
+        long index = tick / pane;
+        Pane<K> last = panes.peekLast();
+        if (last == null || last.index != index) {
+            last = new Pane<>(index);
+            panes.addLast(last);
+        }
+        last.groups.computeIfAbsent(classifier.apply(item), k -> new IntSummaryStatistics()).accept(value.applyAsInt(item));
+        count++;
+        if (clock == null) {
+            close(count, emit);
+        }
+    }
+
+    // emits time windows that ended while no element arrived
+    public void advance(Consumer<Window<K>> emit) {
+        if (clock != null && originTick >= 0) {
+            close(tick(), emit);
+        }
+    }
+
+    // emit every window that ends at or before tick, drop panes no open window needs
+    private void close(long tick, Consumer<Window<K>> emit) {
+        while (nextWindow * slide + size <= tick) {
+            long start = nextWindow * slide;
+            long end = start + size;
+            Window<K> window = new Window<>(start, end);
+            for (Pane<K> p : panes) {
+                long paneStart = p.index * pane;
+                if (paneStart >= end) break;
+                if (paneStart >= start) window.add(p.groups);
+            }
+            nextWindow++;
+            while (!panes.isEmpty() && panes.peekFirst().index * pane < nextWindow * slide) {
+                panes.pollFirst();
+            }
+            emit.accept(window);
+        }
+    }
+
+    // panes currently held, at most size / gcd(size, slide) + 1
+    public int getPaneCount() {
+        return panes.size();
+    }
+
+    // lazy, unbounded: Stream.generate(...) in, windows out, use limit() on the result
+    public Stream<Window<K>> windows(Stream<T> source) {
+        return windows(source.iterator()).onClose(source::close);
+    }
+
+    public Stream<Window<K>> windows(Iterator<T> iterator) {
+        ArrayDeque<Window<K>> ready = new ArrayDeque<>();
+        Spliterator<Window<K>> spliterator = new Spliterators.AbstractSpliterator<Window<K>>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Window<K>> action) {
+                while (ready.isEmpty() && iterator.hasNext()) {
+                    accept(iterator.next(), ready::addLast);
+                }
+                if (ready.isEmpty()) {
+                    return false;
+                }
+                action.accept(ready.pollFirst());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public static class Window<K> {
+        private final long start;
+        private final long end;
+        private final Map<K, IntSummaryStatistics> groups = new HashMap<>();
+        private final IntSummaryStatistics total = new IntSummaryStatistics();
+
+        Window(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void add(Map<K, IntSummaryStatistics> pane) {
+            pane.forEach((key, statistics) -> {
+                groups.computeIfAbsent(key, k -> new IntSummaryStatistics()).combine(statistics);
+                total.combine(statistics);
+            });
+        }
+
+        // first tick of the window, inclusive
+        public long getStart() {
+            return start;
+        }
+
+        // last tick of the window, exclusive
+        public long getEnd() {
+            return end;
+        }
+
+        public Map<K, IntSummaryStatistics> getGroups() {
+            return groups;
+        }
+
+        public IntSummaryStatistics getTotal() {
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            return "Window{" +
+                    "start=" + start +
+                    ", end=" + end +
+                    ", groups=" + groups +
+                    '}';
+        }
+    }
+}
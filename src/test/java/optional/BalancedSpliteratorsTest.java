@@ -0,0 +1,111 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BalancedSpliteratorsTest {
+
+    // inner list i holds about total / (i + 1)^s elements, so the first few lists hold most of them
+    static List<List<String>> zipf(int lists, double s, int total) {
+        double norm = IntStream.rangeClosed(1, lists).mapToDouble(rank -> 1 / Math.pow(rank, s)).sum();
+        List<List<String>> nested = new ArrayList<>(lists);
+        for (int rank = 1; rank <= lists; rank++) {
+            int size = Math.max(1, (int) (total / Math.pow(rank, s) / norm));
+            List<String> inner = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                inner.add(rank + "-" + i);
+            }
+            nested.add(inner);
+        }
+        // skewed lists are not always in front
+        Collections.shuffle(nested, new Random(7));
+        return nested;
+    }
+
+    @Test
+    void flatMap() {
+        List<List<String>> overlapList = Arrays.asList(Arrays.asList("one", "two"), Arrays.asList("three", "four"));
+        List<String> flat = BalancedSpliterators.flatStream(overlapList, false).collect(Collectors.toList());
+        assertThat(flat, contains("one", "two", "three", "four"));
+
+        List<List<String>> withEmpty = Arrays.asList(Collections.emptyList(), Arrays.asList("a"), Collections.emptyList(),
+                new LinkedList<>(Arrays.asList("b", "c")), Collections.emptyList());
+        assertThat(BalancedSpliterators.flatStream(withEmpty, true).collect(Collectors.toList()), contains("a", "b", "c"));
+        assertThat(BalancedSpliterators.flatStream(Collections.<List<String>>emptyList(), true).count(), equalTo(0L));
+    }
+
+    @Test
+    void sameElementsAsFlatMap() {
+        List<List<String>> nested = zipf(500, 1.2, 200_000);
+        List<String> expected = nested.stream().flatMap(Collection::stream).collect(Collectors.toList());
+
+        assertThat(BalancedSpliterators.flatStream(nested, false).collect(Collectors.toList()), equalTo(expected));
+        assertThat(BalancedSpliterators.flatStream(nested, true).collect(Collectors.toList()), equalTo(expected));
+
+        // tryAdvance / trySplit / forEachRemaining mixed
+        Spliterator<String> spliterator = BalancedSpliterators.flatten(nested);
+        List<String> mixed = new ArrayList<>();
+        spliterator.tryAdvance(mixed::add);
+        Spliterator<String> prefix = spliterator.trySplit();
+        prefix.tryAdvance(mixed::add);
+        prefix.forEachRemaining(mixed::add);
+        spliterator.forEachRemaining(mixed::add);
+        assertThat(mixed, equalTo(expected));
+    }
+
+    @Test
+    void skewedFlatMapIsRebalanced() {
+        List<List<String>> nested = zipf(1_000, 1.5, 1_000_000);
+        int parallelism = 8;
+
+        // split by inner list count: a leaf holding the biggest list caps the speedup
+        SpliteratorDiagnostics.Report outer = SpliteratorDiagnostics.splitTree(nested.spliterator(), List::size, parallelism);
+        SpliteratorDiagnostics.Report flat = SpliteratorDiagnostics.splitTree(BalancedSpliterators.flatten(nested), s -> 1, parallelism);
+
+        assertThat(outer.getTotalWeight(), equalTo(flat.getTotalWeight()));
+        assertThat(outer.getSpeedupBound(), lessThan(3.0));
+        assertThat(flat.getSpeedupBound(), greaterThan(parallelism * 3.0));
+        // halving leaves parts between threshold / 2 and threshold
+        assertThat(flat.getImbalance(), lessThan(1.5));
+        assertThat(flat.getMaxDepth() - flat.getMinDepth(), lessThanOrEqualTo(1));
+    }
+
+    @Test
+    void rechunkEvensIteratorSources() {
+        List<Integer> numbers = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+        int parallelism = 8;
+
+        // iterator sources split off 1024, 2048, 3072, ... elements
+        SpliteratorDiagnostics.Report iterator = SpliteratorDiagnostics.splitTree(
+                Spliterators.spliteratorUnknownSize(numbers.iterator(), Spliterator.ORDERED), n -> 1, parallelism);
+        SpliteratorDiagnostics.Report chunked = SpliteratorDiagnostics.splitTree(
+                BalancedSpliterators.rechunk(Spliterators.spliteratorUnknownSize(numbers.iterator(), Spliterator.ORDERED), 1_000),
+                n -> 1, parallelism);
+
+        assertThat(Collections.max(iterator.getLeafSizes()), greaterThan(10_000L));
+        assertThat(Collections.max(chunked.getLeafSizes()), lessThanOrEqualTo(1_000L));
+        assertThat(chunked.getTotalWeight(), equalTo(100_000L));
+
+        List<Integer> rechunked = StreamSupport.stream(
+                BalancedSpliterators.rechunk(Spliterators.spliteratorUnknownSize(numbers.iterator(), Spliterator.ORDERED), 1_000), true)
+                .collect(Collectors.toList());
+        assertThat(rechunked, equalTo(numbers));
+    }
+
+    @Test
+    void workerLoad() {
+        List<List<String>> nested = zipf(1_000, 1.2, 200_000);
+        SpliteratorDiagnostics.Report report = SpliteratorDiagnostics.analyze(() -> BalancedSpliterators.flatten(nested), s -> 1);
+
+        assertThat(report.getWorkerLoad().values().stream().mapToLong(Long::longValue).sum(), equalTo(report.getTotalWeight()));
+        assertThat(report.getLeaves(), greaterThan(1));
+        assertThat(report.toString(), containsString("speedupBound"));
+    }
+}
@@ -0,0 +1,119 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefaultCacheTest {
+    private final AtomicInteger getTextCalls = new AtomicInteger();
+
+    public String getText() {
+        getTextCalls.incrementAndGet();
+        return "ingduk2";
+    }
+
+    @Test
+    public void orElseGet() {
+        DefaultCache<String, String> cache = new DefaultCache<>(10, Duration.ofMinutes(1));
+
+        String name = "ingduk33333";
+        assertEquals("ingduk33333", Optional.ofNullable(name).orElseGet(cache.supplier("text", this::getText)));
+        assertEquals(0, getTextCalls.get());
+
+        name = null;
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ingduk2", Optional.ofNullable(name).orElseGet(cache.supplier("text", this::getText)));
+        }
+        assertEquals("ingduk2", Optional.<String>empty().or(cache.optional("text", this::getText)).get());
+        assertEquals(1, getTextCalls.get());
+        assertEquals(5, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getLoads());
+    }
+
+    @Test
+    public void ttl() {
+        AtomicLong now = new AtomicLong();
+        DefaultCache<String, String> cache = new DefaultCache<>(10, Duration.ofSeconds(10), now::get);
+
+        cache.get("text", this::getText);
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        cache.get("text", this::getText);
+        assertEquals(1, getTextCalls.get());
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get("text", this::getText);
+        assertEquals(2, getTextCalls.get());
+    }
+
+    @Test
+    public void lruEviction() {
+        DefaultCache<Integer, String> cache = new DefaultCache<>(2, Duration.ofMinutes(1));
+        cache.get(1, () -> "one");
+        cache.get(2, () -> "two");
+        cache.get(1, () -> "one");   // 1 is now most recently used
+        cache.get(3, () -> "three"); // evicts 2
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals("one", cache.get(1, () -> "reloaded"));
+        assertEquals("reloaded", cache.get(2, () -> "reloaded"));
+    }
+
+    @Test
+    public void failedLoadIsNotCached() {
+        DefaultCache<String, String> cache = new DefaultCache<>(10, Duration.ofMinutes(1));
+        assertThrows(IllegalStateException.class, () -> cache.get("text", () -> {
+            throw new IllegalStateException("remote config down");
+        }));
+        assertEquals("ingduk2", cache.get("text", this::getText));
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        DefaultCache<String, String> cache = new DefaultCache<>(10, Duration.ofMinutes(1));
+        int threads = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("template", () -> {
+                        loads.incrementAndGet();
+                        sleep(100);
+                        return "rendered";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("rendered", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getLoads());
+        assertEquals(threads, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getLoadNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
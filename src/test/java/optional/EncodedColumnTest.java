@@ -0,0 +1,138 @@
+package optional;
+
+import optional.StreamTest.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class EncodedColumnTest {
+
+    private final List<Product> productList = Arrays.asList(
+            new Product(23, "potatos"),
+            new Product(14, "orange"),
+            new Product(13, "lemon"),
+            new Product(23, "bread"),
+            new Product(13, "suger"),
+            new Product(14, "orange"),
+            new Product(13, "lemon"));
+
+    @Test
+    void collecting() {
+        EncodedColumn names = productList.stream().map(Product::getName)
+                .collect(EncodedColumn.collector(new StringDictionary()));
+
+        assertThat(names.size(), equalTo(7));
+        assertThat(names.getDictionary().size(), equalTo(5));
+        assertThat(names.stream().collect(Collectors.toList()),
+                equalTo(productList.stream().map(Product::getName).collect(Collectors.toList())));
+
+        assertThat(names.joining(), equalTo(productList.stream().map(Product::getName).collect(Collectors.joining())));
+        assertThat(names.joining(", ", "<", ">"),
+                equalTo(productList.stream().map(Product::getName).collect(Collectors.joining(", ", "<", ">"))));
+        assertThat(new EncodedColumn(new StringDictionary()).joining(", ", "<", ">"), equalTo("<>"));
+    }
+
+    @Test
+    void sameAsStreamOperations() {
+        EncodedColumn names = productList.stream().map(Product::getName)
+                .collect(EncodedColumn.collector(new StringDictionary()));
+
+        assertThat(names.counting(), equalTo(productList.stream()
+                .collect(Collectors.groupingBy(Product::getName, Collectors.counting()))));
+        assertThat(names.distinct(), equalTo(productList.stream().map(Product::getName).distinct().collect(Collectors.toList())));
+        assertThat(names.filter(name -> name.contains("o")).stream().collect(Collectors.toList()),
+                equalTo(productList.stream().map(Product::getName).filter(name -> name.contains("o")).collect(Collectors.toList())));
+        assertThat(names.contains("lemon"), equalTo(true));
+        assertThat(names.contains("apple"), equalTo(false));
+    }
+
+    @Test
+    void filterRunsOncePerDistinctValue() {
+        StringDictionary dictionary = new StringDictionary();
+        EncodedColumn names = IntStream.range(0, 100_000).mapToObj(i -> "name" + i % 10)
+                .collect(EncodedColumn.collector(dictionary));
+        int[] calls = new int[1];
+
+        EncodedColumn filtered = names.filter(name -> {
+            calls[0]++;
+            return name.endsWith("3");
+        });
+        assertThat(calls[0], equalTo(10));
+        assertThat(filtered.size(), equalTo(10_000));
+    }
+
+    @Test
+    void utf8Joining() {
+        StringDictionary dictionary = new StringDictionary();
+        EncodedColumn names = new EncodedColumn(dictionary);
+        for (String name : Arrays.asList("감자", "orange", "레몬", "감자")) {
+            names.add(name);
+        }
+        assertThat(names.joining(" · ", "[", "]"), equalTo("[감자 · orange · 레몬 · 감자]"));
+    }
+
+    @Test
+    void concurrentInterning() {
+        StringDictionary dictionary = new StringDictionary(4);
+        List<String> values = IntStream.range(0, 200_000).mapToObj(i -> "name" + i % 10_000).collect(Collectors.toList());
+
+        EncodedColumn names = values.parallelStream().collect(EncodedColumn.collector(dictionary));
+
+        assertThat(dictionary.size(), equalTo(10_000));
+        assertThat(names.stream().collect(Collectors.toList()), equalTo(values));
+        Set<Integer> codes = values.stream().distinct().map(dictionary::code).collect(Collectors.toSet());
+        assertThat(codes, hasSize(10_000));
+        assertThat(codes.stream().allMatch(code -> code >= 0 && code < 10_000), equalTo(true));
+        assertThat(dictionary.code("missing"), equalTo(-1));
+        assertThat(names.counting(), equalTo(values.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))));
+    }
+
+    @Test
+    void codesBelowSizeAreReadable() throws InterruptedException {
+        StringDictionary dictionary = new StringDictionary(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int offset = w;
+            writers.add(new Thread(() -> {
+                for (int i = offset; i < 100_000; i += 4) {
+                    dictionary.intern("name" + i);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+
+        // every code below size() has its value, while the writers are still interning
+        List<String> missing = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                int size = dictionary.size();
+                for (int code = Math.max(0, size - 64); code < size; code++) {
+                    if (dictionary.get(code) == null || dictionary.bytes(code) == null) {
+                        missing.add("code " + code);
+                    }
+                }
+                if (dictionary.matching(name -> true).cardinality() < size) {
+                    missing.add("matching below " + size);
+                }
+            }
+        });
+        reader.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        reader.join();
+
+        assertThat(missing, empty());
+        assertThat(dictionary.size(), equalTo(100_000));
+        assertThat(dictionary.matching(name -> true).cardinality(), equalTo(100_000));
+    }
+}
@@ -0,0 +1,189 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExternalSortTest {
+
+    private Path spillDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("external-sort");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    private long files(Path directory) throws IOException {
+        try (Stream<Path> list = Files.list(directory)) {
+            return list.count();
+        }
+    }
+
+    @Test
+    void sortInMemory() throws IOException {
+        ExternalSort sort = new ExternalSort(100, spillDirectory());
+        List<Integer> sortedList = sort.sorted(IntStream.of(14, 11, 20, 39, 23)).boxed().collect(Collectors.toList());
+        assertThat(sortedList, contains(11, 14, 20, 23, 39));
+
+        List<String> lang = Arrays.asList("Java", "Scala", "Groovy", "Python");
+        assertThat(sort.sorted(lang.stream(), Comparator.naturalOrder(), ExternalSort.STRING).collect(Collectors.toList()),
+                contains("Groovy", "Java", "Python", "Scala"));
+        assertThat(sort.sorted(lang.stream(), Comparator.reverseOrder(), ExternalSort.STRING).collect(Collectors.toList()),
+                contains("Scala", "Python", "Java", "Groovy"));
+        assertThat(sort.getSpilledRuns(), equalTo(0));
+    }
+
+    @Test
+    void stableAcrossRuns() throws IOException {
+        // budget of 1 element: every element is its own run, merged 2 at a time (4 -> 2 -> stream)
+        ExternalSort sort = new ExternalSort(1, spillDirectory());
+        List<String> lang = Arrays.asList("Java", "Scala", "Groovy", "Python");
+        assertThat(sort.sorted(lang.stream(), Comparator.comparingInt(String::length), ExternalSort.STRING).collect(Collectors.toList()),
+                contains("Java", "Scala", "Groovy", "Python"));
+        assertThat(sort.sorted(lang.stream(), (s1, s2) -> s2.length() - s1.length(), ExternalSort.STRING).collect(Collectors.toList()),
+                contains("Groovy", "Python", "Scala", "Java"));
+        assertThat(sort.getSpilledRuns(), equalTo(12));
+    }
+
+    @Test
+    void objectsTenTimesBudget() throws IOException {
+        Path directory = spillDirectory();
+        ExternalSort sort = new ExternalSort(1_000, directory);
+        Random random = new Random(1);
+        List<String> input = random.ints(10_000, 0, 5_000).mapToObj(i -> "item-" + i).collect(Collectors.toList());
+
+        try (Stream<String> sorted = sort.sorted(input.stream(), Comparator.naturalOrder(), ExternalSort.STRING)) {
+            assertThat(sorted.collect(Collectors.toList()), equalTo(input.stream().sorted().collect(Collectors.toList())));
+        }
+        // 10 runs, fan-in 2: passes write 5, 2 and 1 more runs
+        assertThat(sort.fanIn(16), equalTo(2));
+        assertThat(sort.getSpilledRuns(), equalTo(10 + 5 + 2 + 1));
+        assertThat(files(directory), equalTo(0L));
+    }
+
+    @Test
+    void intsTenTimesBudget() throws IOException {
+        Path directory = spillDirectory();
+        ExternalSort sort = new ExternalSort(10_000, directory);
+        int[] input = new Random(2).ints(100_003).toArray();
+        int[] expected = input.clone();
+        Arrays.sort(expected);
+
+        try (IntStream sorted = sort.sorted(Arrays.stream(input).parallel())) {
+            assertThat(Arrays.equals(sorted.toArray(), expected), equalTo(true));
+        }
+        // 11 runs, fan-in 2: passes write 5, 3 and 1 more runs
+        assertThat(sort.getSpilledRuns(), equalTo(11 + 5 + 3 + 1));
+        assertThat(files(directory), equalTo(0L));
+    }
+
+    @Test
+    void longsTenTimesBudget() throws IOException {
+        Path directory = spillDirectory();
+        ExternalSort sort = new ExternalSort(5_000, directory);
+        long[] input = new Random(3).longs(50_000).toArray();
+        long[] expected = input.clone();
+        Arrays.sort(expected);
+
+        try (LongStream sorted = sort.sorted(Arrays.stream(input))) {
+            assertThat(Arrays.equals(sorted.toArray(), expected), equalTo(true));
+        }
+        assertThat(files(directory), equalTo(0L));
+    }
+
+    @Test
+    void fanInFollowsTheBudget() throws IOException {
+        Path directory = spillDirectory();
+        // 64k ints = 256 KB of budget = four 64 KB read buffers
+        ExternalSort sort = new ExternalSort(1 << 16, directory);
+        assertThat(sort.fanIn(Integer.BYTES), equalTo(4));
+        assertThat(sort.fanIn(Long.BYTES), equalTo(8));
+        assertThat(new ExternalSort(Integer.MAX_VALUE, directory).fanIn(Long.BYTES), equalTo(128));
+
+        int[] input = new Random(5).ints(16 << 16).toArray();
+        int[] expected = input.clone();
+        Arrays.sort(expected);
+        try (IntStream sorted = sort.sorted(Arrays.stream(input))) {
+            // 16 runs merged into 4 before the stream is returned, only those 4 are left to open
+            assertThat(files(directory), equalTo(4L));
+            assertThat(sort.getSpilledRuns(), equalTo(16 + 4));
+            assertThat(Arrays.equals(sorted.toArray(), expected), equalTo(true));
+        }
+        assertThat(files(directory), equalTo(0L));
+    }
+
+    @Test
+    void failedWriteDeletesItsRun() throws IOException {
+        Path directory = spillDirectory();
+        ExternalSort sort = new ExternalSort(2, directory);
+        ExternalSort.Codec<String> failing = new ExternalSort.Codec<String>() {
+            @Override
+            public void write(DataOutput out, String value) throws IOException {
+                if (value.equals("Groovy")) {
+                    throw new IOException("disk full");
+                }
+                ExternalSort.STRING.write(out, value);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return ExternalSort.STRING.read(in);
+            }
+        };
+        List<String> lang = Arrays.asList("Java", "Scala", "Groovy", "Python", "Kotlin");
+        assertThrows(UncheckedIOException.class,
+                () -> sort.sorted(lang.stream(), Comparator.naturalOrder(), failing));
+        assertThat(files(directory), equalTo(0L));
+    }
+
+    @Test
+    void closeDeletesUnreadRuns() throws IOException {
+        Path directory = spillDirectory();
+        ExternalSort sort = new ExternalSort(10, directory);
+        try (IntStream sorted = sort.sorted(IntStream.range(0, 100).map(i -> 100 - i))) {
+            assertThat(sorted.limit(3).boxed().collect(Collectors.toList()), contains(1, 2, 3));
+            assertThat(files(directory), greaterThan(0L));
+        }
+        assertThat(files(directory), equalTo(0L));
+    }
+
+    @Test
+    void loserTreeMergesRuns() {
+        Random random = new Random(4);
+        for (int k = 1; k <= 17; k++) {
+            int[][] runs = new int[k][];
+            for (int i = 0; i < k; i++) {
+                runs[i] = random.ints(random.nextInt(20), 0, 50).sorted().toArray();
+            }
+            int[] positions = new int[k];
+            LoserTree tree = new LoserTree(k, new LoserTree.Leaves() {
+                @Override
+                public boolean exhausted(int leaf) {
+                    return positions[leaf] >= runs[leaf].length;
+                }
+
+                @Override
+                public int compare(int leaf, int other) {
+                    return Integer.compare(runs[leaf][positions[leaf]], runs[other][positions[other]]);
+                }
+            });
+            List<Integer> merged = new ArrayList<>();
+            while (positions[tree.winner()] < runs[tree.winner()].length) {
+                merged.add(runs[tree.winner()][positions[tree.winner()]++]);
+                tree.replay();
+            }
+            List<Integer> expected = Arrays.stream(runs).flatMapToInt(Arrays::stream).sorted().boxed().collect(Collectors.toList());
+            assertThat(merged, equalTo(expected));
+        }
+    }
+}
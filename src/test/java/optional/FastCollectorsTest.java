@@ -0,0 +1,108 @@
+package optional;
+
+import optional.StreamTest.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class FastCollectorsTest {
+    private final List<Product> productList = Arrays.asList(
+            new Product(23, "potatos"),
+            new Product(14, "orange"),
+            new Product(13, "lemon"),
+            new Product(23, "bread"),
+            new Product(13, "suger")
+    );
+
+    @Test
+    void chunkedListLikeLinkedList() {
+        Collector<Product, ?, LinkedList<Product>> toLinkedList =
+                Collector.of(LinkedList::new, LinkedList::add,
+                        (first, second) -> {
+                            first.addAll(second);
+                            return first;
+                        });
+        LinkedList<Product> linkedList = productList.stream().collect(toLinkedList);
+        ChunkedList<Product> chunkedList = productList.stream().collect(FastCollectors.toChunkedList());
+        assertThat(chunkedList, equalTo(linkedList));
+        assertThat(chunkedList.get(4).getName(), equalTo("suger"));
+    }
+
+    @Test
+    void chunkedListParallelKeepsOrder() {
+        List<Integer> expected = IntStream.range(0, 1_000_000).boxed().collect(Collectors.toList());
+        ChunkedList<Integer> collected = expected.parallelStream().collect(FastCollectors.toChunkedList());
+        assertThat(collected.size(), equalTo(expected.size()));
+        assertThat(collected, equalTo(expected));
+        assertThat(collected.get(765_432), equalTo(765_432));
+        // the index is rebuilt once the list grew
+        collected.add(-1);
+        assertThat(collected.get(1_000_000), equalTo(-1));
+        assertThat(collected.get(999_999), equalTo(999_999));
+        assertThat(Arrays.asList(collected.toArray()), equalTo(collected));
+    }
+
+    @Test
+    void concat() {
+        ChunkedList<String> first = new ChunkedList<>();
+        ChunkedList<String> second = new ChunkedList<>();
+        first.add("one");
+        second.add("two");
+        second.add("three");
+
+        first.concat(second).add("four");
+        assertThat(first, contains("one", "two", "three", "four"));
+        assertThat(second.size(), equalTo(0));
+
+        assertThat(new ChunkedList<String>().concat(first), contains("one", "two", "three", "four"));
+    }
+
+    @Test
+    void sizedList() {
+        List<String> names = productList.stream().map(Product::getName).collect(FastCollectors.toPresizedList(5));
+        assertThat(names, contains("potatos", "orange", "lemon", "bread", "suger"));
+
+        List<Integer> source = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+        assertThat(FastCollectors.toSizedList(source.stream().map(i -> i * 2)),
+                equalTo(source.stream().map(i -> i * 2).collect(Collectors.toList())));
+        assertThat(FastCollectors.toSizedList(source.parallelStream().map(i -> i * 2)),
+                equalTo(source.stream().map(i -> i * 2).collect(Collectors.toList())));
+        // not SIZED after filter
+        assertThat(FastCollectors.toSizedList(source.stream().filter(i -> i % 2 == 0)).size(), equalTo(50_000));
+
+        // every split writes at its own offset, whichever finishes first
+        for (int round = 0; round < 20; round++) {
+            assertThat(FastCollectors.toSizedList(source.parallelStream().map(i -> i * 2)),
+                    equalTo(source.stream().map(i -> i * 2).collect(Collectors.toList())));
+        }
+        // SIZED but not SUBSIZED: chunks copied in encounter order
+        Set<Integer> set = new HashSet<>(source);
+        assertThat(FastCollectors.toSizedList(set.parallelStream().map(i -> i + 1)),
+                equalTo(set.stream().map(i -> i + 1).collect(Collectors.toList())));
+    }
+
+    @Test
+    void concurrentGrouping() {
+        Map<Integer, List<Product>> expected = productList.stream().collect(Collectors.groupingBy(Product::getAmount));
+        ConcurrentMap<Integer, Collection<Product>> grouped = productList.parallelStream()
+                .collect(FastCollectors.groupingByConcurrent(Product::getAmount));
+        assertThat(grouped.keySet(), equalTo(expected.keySet()));
+        assertThat(grouped.get(13).size(), equalTo(2));
+        assertThat(grouped.get(14).size(), equalTo(1));
+        assertThat(new HashSet<>(grouped.get(23)), equalTo(new HashSet<>(expected.get(23))));
+
+        List<Integer> numbers = IntStream.range(0, 1_000_000).boxed().collect(Collectors.toList());
+        ConcurrentMap<Integer, LongAdder> counts = numbers.parallelStream()
+                .collect(FastCollectors.countingByConcurrent(n -> n % 7));
+        Map<Integer, Long> expectedCounts = numbers.stream().collect(Collectors.groupingBy(n -> n % 7, Collectors.counting()));
+        expectedCounts.forEach((key, count) -> assertThat(counts.get(key).sum(), equalTo(count)));
+    }
+}
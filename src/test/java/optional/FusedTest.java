@@ -0,0 +1,105 @@
+package optional;
+
+import optional.OptionalTest.Modem;
+import optional.StreamTest.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FusedTest {
+
+    @Test
+    void concatFilterMap() {
+        List<String> list1 = Arrays.asList("one", "two", "three");
+        List<String> list2 = Arrays.asList("four", "five", "six");
+        List<String> concat = Stream.concat(list1.stream(), list2.stream()).collect(Collectors.toList());
+
+        Function<List<String>, List<String>> filter = Fused.<String>list().filter(num -> num.contains("three")).toList();
+        assertThat(filter.apply(concat), equalTo(Stream.concat(list1.stream(), list2.stream())
+                .filter(num -> num.contains("three")).collect(Collectors.toList())));
+
+        Function<List<String>, List<String>> upper = Fused.<String>list().map(String::toUpperCase).toList();
+        assertThat(upper.apply(concat), contains("ONE", "TWO", "THREE", "FOUR", "FIVE", "SIX"));
+        assertThat(upper.apply(Collections.emptyList()), empty());
+        // not RandomAccess, read through a copy
+        assertThat(upper.apply(new LinkedList<>(concat)), equalTo(upper.apply(concat)));
+    }
+
+    @Test
+    void modemPriceRange() {
+        List<Modem> modems = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 1_000; i++) {
+            modems.add(i % 7 == 0 ? new Modem() : new Modem(random.nextInt(30)));
+        }
+
+        // the OptionalTest chain, over a list of modems
+        ToLongFunction<List<Modem>> inRange = Fused.<Modem>list()
+                .filter(Objects::nonNull)
+                .map(Modem::getPrice)
+                .filter(Objects::nonNull)
+                .filter(p -> p >= 10)
+                .filter(p -> p <= 15)
+                .count();
+        long expected = modems.stream().map(Modem::getPrice).filter(Objects::nonNull).filter(p -> p >= 10).filter(p -> p <= 15).count();
+        assertThat(inRange.applyAsLong(modems), equalTo(expected));
+        assertThat(inRange.applyAsLong(Collections.singletonList(new Modem(12))), equalTo(1L));
+        assertThat(inRange.applyAsLong(Collections.singletonList(new Modem())), equalTo(0L));
+    }
+
+    @Test
+    void primitivePaths() {
+        List<Product> products = Arrays.asList(
+                new Product(23, "potatos"),
+                new Product(14, "orange"),
+                new Product(13, "lemon"),
+                new Product(23, "bread"),
+                new Product(13, "suger"));
+
+        ToIntFunction<List<Product>> amounts = Fused.<Product>list().filter(p -> p.getName().length() > 5).mapToInt(Product::getAmount).sum();
+        assertThat(amounts.applyAsInt(products),
+                equalTo(products.stream().filter(p -> p.getName().length() > 5).mapToInt(Product::getAmount).sum()));
+
+        int[] values = IntStream.range(0, 10_000).toArray();
+        ToIntFunction<int[]> squares = Fused.ints().filter(i -> i % 3 == 0).map(i -> i * i).reduce(7, (a, b) -> a ^ b);
+        assertThat(squares.applyAsInt(values), equalTo(IntStream.of(values).filter(i -> i % 3 == 0).map(i -> i * i).reduce(7, (a, b) -> a ^ b)));
+        assertThat(Fused.ints().filter(i -> i > 5_000).count().applyAsLong(values), equalTo(4_999L));
+
+        Function<int[], String> joined = Fused.ints().filter(i -> i < 5).mapToObj(Integer::toString).reduce("", String::concat);
+        assertThat(joined.apply(values), equalTo("01234"));
+        Function<int[], List<Integer>> boxed = Fused.ints().map(i -> -i).mapToObj(i -> i).filter(i -> i > -3).toList();
+        assertThat(boxed.apply(values), contains(0, -1, -2));
+    }
+
+    @Test
+    void cachedByShape() {
+        Fused.<String>list().filter(s -> s.isEmpty()).mapToInt(String::length).map(i -> i + 1).sum();
+        int shapes = Fused.getShapeCount();
+
+        // same shape, different lambdas: no new handle tree, each pipeline keeps its own lambdas
+        ToIntFunction<List<String>> a = Fused.<String>list().filter(s -> s.startsWith("a")).mapToInt(String::length).map(i -> i + 1).sum();
+        ToIntFunction<List<String>> b = Fused.<String>list().filter(s -> s.startsWith("b")).mapToInt(String::hashCode).map(i -> i * 2).sum();
+        assertThat(Fused.getShapeCount(), equalTo(shapes));
+
+        List<String> words = Arrays.asList("apple", "banana", "avocado", "blueberry");
+        assertThat(a.applyAsInt(words), equalTo(words.stream().filter(s -> s.startsWith("a")).mapToInt(String::length).map(i -> i + 1).sum()));
+        assertThat(b.applyAsInt(words), equalTo(words.stream().filter(s -> s.startsWith("b")).mapToInt(String::hashCode).map(i -> i * 2).sum()));
+    }
+
+    @Test
+    void exceptionsPropagate() {
+        ToLongFunction<List<String>> lengths = Fused.<String>list().map(String::length).count();
+        assertThat(lengths.applyAsLong(Arrays.asList("a", "bb")), equalTo(2L));
+        assertThrows(NullPointerException.class, () -> lengths.applyAsLong(Arrays.asList("a", null)));
+    }
+}
@@ -0,0 +1,119 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class KernelsTest {
+
+    @Test
+    void calculating() {
+        int[] values = {1, 3, 5, 7, 9};
+        Kernels.IntSummary summary = Kernels.summarize(values);
+        assertThat(summary.getCount(), equalTo(IntStream.of(values).count()));
+        assertThat(summary.getSum(), equalTo((long) IntStream.of(values).sum()));
+        assertThat(summary.getMin(), equalTo(IntStream.of(values).min().getAsInt()));
+        assertThat(summary.getMax(), equalTo(IntStream.of(values).max().getAsInt()));
+        assertThat(summary.getSumOfSquares(), equalTo(1.0 + 9 + 25 + 49 + 81));
+
+        OptionalDouble average = DoubleStream.of(1.1, 2.2, 3.3, 4.4, 5.5).average();
+        assertThat(Kernels.summarize(new double[]{1.1, 2.2, 3.3, 4.4, 5.5}).getAverage(), equalTo(average.getAsDouble()));
+
+        assertThat(Kernels.summarize(new int[]{1, 2, 3}).getSum(), equalTo((long) IntStream.range(1, 4).reduce(Integer::sum).getAsInt()));
+    }
+
+    @Test
+    void sameAsSummaryStatistics() {
+        Random random = new Random(11);
+        for (int length : new int[]{0, 1, 3, 4, 5, 1_000, Kernels.CHUNK * 3 + 7}) {
+            int[] ints = random.ints(length).toArray();
+            IntSummaryStatistics expected = IntStream.of(ints).summaryStatistics();
+            for (Kernels.IntSummary summary : Arrays.asList(Kernels.summarize(ints), Kernels.parallelSummarize(ints))) {
+                IntSummaryStatistics statistics = summary.toStatistics();
+                assertThat(statistics.getCount(), equalTo(expected.getCount()));
+                assertThat(statistics.getSum(), equalTo(expected.getSum()));
+                assertThat(statistics.getMin(), equalTo(expected.getMin()));
+                assertThat(statistics.getMax(), equalTo(expected.getMax()));
+                assertThat(statistics.getAverage(), equalTo(expected.getAverage()));
+            }
+
+            long[] longs = random.longs(length).toArray();
+            LongSummaryStatistics expectedLongs = Arrays.stream(longs).summaryStatistics();
+            for (Kernels.LongSummary summary : Arrays.asList(Kernels.summarize(longs), Kernels.parallelSummarize(longs))) {
+                assertThat(summary.getCount(), equalTo(expectedLongs.getCount()));
+                assertThat(summary.getSum(), equalTo(expectedLongs.getSum()));
+                assertThat(summary.getMin(), equalTo(expectedLongs.getMin()));
+                assertThat(summary.getMax(), equalTo(expectedLongs.getMax()));
+            }
+
+            double[] doubles = random.doubles(length, -1e6, 1e6).toArray();
+            DoubleSummaryStatistics expectedDoubles = Arrays.stream(doubles).summaryStatistics();
+            // the default double path is a drop-in: bit for bit the stream result
+            Kernels.DoubleSummary exact = Kernels.summarize(doubles);
+            assertThat(exact.getSum(), equalTo(expectedDoubles.getSum()));
+            assertThat(exact.getAverage(), equalTo(expectedDoubles.getAverage()));
+            assertThat(exact.toStatistics().toString(), equalTo(expectedDoubles.toString()));
+            for (Kernels.DoubleSummary summary : Arrays.asList(Kernels.summarizeLanes(doubles), Kernels.parallelSummarize(doubles))) {
+                assertThat(summary.getCount(), equalTo(expectedDoubles.getCount()));
+                assertThat(summary.getMin(), equalTo(expectedDoubles.getMin()));
+                assertThat(summary.getMax(), equalTo(expectedDoubles.getMax()));
+                // lanes / chunks add in a different order, compensated so only the last bits differ
+                assertThat(summary.getSum(), closeTo(expectedDoubles.getSum(), Math.ulp(expectedDoubles.getSum()) * 2));
+            }
+        }
+    }
+
+    @Test
+    void compensatedSum() {
+        // one large value and many small ones: a naive sum loses all the small ones
+        double[] values = new double[1_000_001];
+        values[0] = 1e16;
+        Arrays.fill(values, 1, values.length, 1.0);
+        double naive = 0;
+        for (double value : values) {
+            naive += value;
+        }
+        BigDecimal exact = BigDecimal.valueOf(1e16).add(BigDecimal.valueOf(1_000_000));
+
+        assertThat(naive, equalTo(1e16));
+        assertThat(Kernels.summarize(values).getSum(), equalTo(exact.doubleValue()));
+        assertThat(Kernels.parallelSummarize(values).getSum(), equalTo(exact.doubleValue()));
+        assertThat(Kernels.summarizeLanes(values).getSum(), equalTo(exact.doubleValue()));
+    }
+
+    @Test
+    void infinities() {
+        double[] values = {1.0, Double.POSITIVE_INFINITY, 2.0};
+        assertThat(Kernels.summarize(values).getSum(), equalTo(DoubleStream.of(values).sum()));
+        assertThat(Kernels.summarizeLanes(values).getSum(), equalTo(DoubleStream.of(values).sum()));
+        assertThat(Kernels.summarize(new double[0]).toStatistics().getCount(), equalTo(0L));
+
+        double max = Double.MAX_VALUE, inf = Double.POSITIVE_INFINITY;
+        double[][] special = {
+                {-0.0, 0.0, -0.0},
+                {1.0, Double.NaN, 2.0, 3.0},
+                {inf, 1.0, -inf, 2.0},
+                {max, max, -max},
+                {-max, -max, 1.0, max, 5.0},
+                {1e308, 1e-308, -1e308, 3.0, -0.0}};
+        for (double[] base : special) {
+            // repeated so the unrolled loops see them, not only the tail
+            for (double[] array : Arrays.asList(base, DoubleStream.of(base).flatMap(v -> DoubleStream.of(v, v, v)).toArray())) {
+                // the stream result, NaN and signed zeros included
+                DoubleSummaryStatistics expected = DoubleStream.of(array).summaryStatistics();
+                assertThat(Kernels.summarize(array).toStatistics().toString(), equalTo(expected.toString()));
+                assertThat(Kernels.summarize(array).getSum(), equalTo(expected.getSum()));
+                assertThat(Kernels.summarize(array).getMin(), equalTo(expected.getMin()));
+                assertThat(Kernels.summarize(array).getMax(), equalTo(expected.getMax()));
+                assertThat(Kernels.summarizeLanes(array).getMin(), equalTo(expected.getMin()));
+                assertThat(Kernels.summarizeLanes(array).getMax(), equalTo(expected.getMax()));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedLinesTest {
+
+    private List<String> filesLines(Path path) throws IOException {
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return lines.collect(Collectors.toList());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path path = Files.createTempFile("mapped-lines", ".txt");
+        path.toFile().deleteOnExit();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    void sameAsFilesLines() throws IOException {
+        Path path = Paths.get("file.txt");
+        try (MappedLines lines = MappedLines.open(path)) {
+            assertThat(lines.strings().collect(Collectors.toList()), contains("test"));
+            assertThat(lines.strings().collect(Collectors.toList()), equalTo(filesLines(path)));
+        }
+    }
+
+    @Test
+    void lineBreaks() throws IOException {
+        Path path = write("one\r\ntwo\n\nthree 한글\nlast");
+        try (MappedLines lines = MappedLines.open(path)) {
+            assertThat(lines.strings().collect(Collectors.toList()), contains("one", "two", "", "three 한글", "last"));
+            assertThat(lines.strings().collect(Collectors.toList()), equalTo(filesLines(path)));
+        }
+
+        Path empty = write("");
+        try (MappedLines lines = MappedLines.open(empty)) {
+            assertThat(lines.lines().count(), equalTo(0L));
+        }
+    }
+
+    @Test
+    void mixedLineEndings() throws IOException {
+        Path path = write("a\rb\r\nc\n\rd\r\r\ne\r\n\n\rf\r");
+        try (MappedLines lines = MappedLines.open(path)) {
+            assertThat(lines.strings().collect(Collectors.toList()), contains("a", "b", "c", "", "d", "", "e", "", "", "f"));
+            assertThat(lines.strings().collect(Collectors.toList()), equalTo(filesLines(path)));
+        }
+
+        // old Mac style, chunks and splits have to break on '\r' too
+        String content = IntStream.range(0, 50_000)
+                .mapToObj(i -> "line-" + i + (i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\r" : "\n"))
+                .collect(Collectors.joining());
+        Path mixed = write(content);
+        List<String> expected = filesLines(mixed);
+        try (MappedLines lines = MappedLines.open(mixed, 4 * 1024)) {
+            assertThat(lines.strings().collect(Collectors.toList()), equalTo(expected));
+            assertThat(lines.strings().parallel().collect(Collectors.toList()), equalTo(expected));
+        }
+        Path carriageReturns = write(content.replace("\n", ""));
+        try (MappedLines lines = MappedLines.open(carriageReturns, 4 * 1024)) {
+            assertThat(lines.strings().parallel().collect(Collectors.toList()), equalTo(filesLines(carriageReturns)));
+        }
+    }
+
+    @Test
+    void byteLineView() throws IOException {
+        Path path = write("potatos,23\nlemon,13\n");
+        try (MappedLines lines = MappedLines.open(path)) {
+            List<ByteLine> views = lines.lines().collect(Collectors.toList());
+            ByteLine first = views.get(0);
+            assertThat(first.byteLength(), equalTo(10));
+            assertThat(first.byteAt(0), equalTo((byte) 'p'));
+            assertThat(first.slice(8, 10).toString(), equalTo("23"));
+            assertThat(first.startsWith("potatos".getBytes(StandardCharsets.US_ASCII)), equalTo(true));
+            // byte checks, no String needed for contains-like filters
+            assertThat(Stream.of(first, views.get(1)).filter(l -> l.byteAt(0) == 'l').count(), equalTo(1L));
+        }
+    }
+
+    @Test
+    void utf8ByteLine() throws IOException {
+        Path path = write("감자,23\n");
+        try (MappedLines lines = MappedLines.open(path)) {
+            ByteLine line = lines.lines().findFirst().get();
+            // offsets are bytes, the text is decoded
+            assertThat(line.byteLength(), equalTo(9));
+            assertThat(line.toString(), equalTo("감자,23"));
+            assertThat(line.slice(7, 9).toString(), equalTo("23"));
+
+            CharSequence latin1 = line.asLatin1();
+            assertThat(latin1.length(), equalTo(latin1.toString().length()));
+            assertThat(new StringBuilder().append(latin1).toString(), equalTo(latin1.toString()));
+            Matcher comma = Pattern.compile(",").matcher(latin1);
+            assertThat(comma.find(), equalTo(true));
+            assertThat(comma.start(), equalTo(6));
+        }
+    }
+
+    @Test
+    void parallelAcrossChunks() throws IOException {
+        String content = IntStream.range(0, 200_000)
+                .mapToObj(i -> "line-" + i)
+                .collect(Collectors.joining("\n", "", "\n"));
+        Path path = write(content);
+        List<String> expected = filesLines(path);
+
+        // small chunks so the file is mapped as several buffers
+        try (MappedLines lines = MappedLines.open(path, 64 * 1024)) {
+            assertThat(lines.strings().collect(Collectors.toList()), equalTo(expected));
+            assertThat(lines.strings().parallel().collect(Collectors.toList()), equalTo(expected));
+            assertThat(lines.lines().parallel().mapToInt(ByteLine::byteLength).sum(),
+                    equalTo(expected.stream().mapToInt(String::length).sum()));
+        }
+    }
+
+    @Test
+    void splitsOnLineBoundaries() throws IOException {
+        String content = IntStream.range(0, 50_000).mapToObj(Integer::toString).collect(Collectors.joining("\n"));
+        Path path = write(content);
+        try (MappedLines lines = MappedLines.open(path)) {
+            Spliterator<ByteLine> right = lines.lines().spliterator();
+            Spliterator<ByteLine> left = right.trySplit();
+            assertThat(left, notNullValue());
+
+            List<String> joined = new ArrayList<>();
+            left.forEachRemaining(l -> joined.add(l.toString()));
+            right.forEachRemaining(l -> joined.add(l.toString()));
+            assertThat(joined, equalTo(filesLines(path)));
+        }
+    }
+
+    @Test
+    void lineLongerThanChunk() throws IOException {
+        Path path = write("0123456789\nab\n");
+        assertThrows(IOException.class, () -> MappedLines.open(path, 4));
+    }
+}
@@ -0,0 +1,63 @@
+package optional;
+
+import optional.OptionalTest.Modem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MaybeTest {
+
+    @Test
+    public void filter() {
+        Modem modem = new Modem();
+        boolean isInRange = Optional.ofNullable(modem).map(o -> modem.getPrice()).filter(p -> p >= 10).filter(p -> p <= 15).isPresent();
+        assertFalse(isInRange);
+
+        assertEquals(isInRange, MaybeInt.ofNullable(modem, Modem::getPrice).filter(p -> p >= 10).filter(p -> p <= 15).isPresent());
+        assertEquals(isInRange, Maybe.matches(Maybe.map(modem, Modem::getPrice), p -> p >= 10 && p <= 15));
+        assertEquals(isInRange, Maybe.inRange(Maybe.map(modem, Modem::getPrice), 10, 15));
+
+        Modem priced = new Modem(12);
+        assertTrue(MaybeInt.ofNullable(priced, Modem::getPrice).filter(p -> p >= 10).filter(p -> p <= 15).isPresent());
+        assertTrue(Maybe.inRange(Maybe.map(priced, Modem::getPrice), 10, 15));
+
+        Modem nullModem = null;
+        assertFalse(MaybeInt.ofNullable(nullModem, Modem::getPrice).isPresent());
+        assertFalse(Maybe.inRange(Maybe.map(nullModem, Modem::getPrice), 10, 15));
+    }
+
+    @Test
+    public void mapAndOrElse() {
+        List<String> companyNames = Arrays.asList("a", "b", "c", "d");
+        assertEquals(4, MaybeInt.mapToInt(companyNames, List::size).orElse(0));
+        assertEquals(0, MaybeInt.mapToInt((List<String>) null, List::size).orElse(0));
+
+        assertEquals(14, MaybeInt.of(7).map(n -> n * 2).orElse(0));
+        assertEquals(7, Maybe.mapToIntOrElse("ingduk2", String::length, 0));
+        assertEquals(-1, Maybe.intOrElse(new Modem(), Modem::getPrice, -1));
+
+        String password = " password    ";
+        assertTrue(Maybe.matches(Maybe.map(password, String::trim), pwd -> pwd.equals("password")));
+        assertEquals("ingduk2", Maybe.orElseGet(null, () -> "ingduk2"));
+        assertEquals("ingduk2", Maybe.orElse(null, "ingduk2"));
+        assertNull(Maybe.filter("ingduk2", n -> n.isEmpty()));
+    }
+
+    @Test
+    public void emptyAndGet() {
+        assertThrows(NoSuchElementException.class, () -> MaybeInt.empty().getAsInt());
+        assertThrows(IllegalArgumentException.class, () -> MaybeInt.empty().orElseThrow(IllegalArgumentException::new));
+        assertEquals(3, MaybeInt.ofNullable(3).getAsInt());
+        assertEquals(MaybeInt.empty(), MaybeInt.ofNullable((Integer) null));
+        assertEquals(MaybeInt.empty(), MaybeInt.of(3).filter(i -> i > 5));
+        assertEquals(MaybeInt.empty().hashCode(), MaybeInt.of(3).filter(i -> i > 5).hashCode());
+        assertEquals(MaybeInt.of(2020), MaybeInt.ofNullable(2020));
+        assertEquals(Optional.of(2020).filter(y -> y == 2020).isPresent(), MaybeInt.of(2020).filter(y -> y == 2020).isPresent());
+        assertEquals(java.util.OptionalInt.of(5), MaybeInt.of(5).toOptionalInt());
+    }
+}
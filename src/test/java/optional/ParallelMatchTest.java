@@ -0,0 +1,83 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ParallelMatchTest {
+
+    @Test
+    void matching() {
+        List<String> names = Arrays.asList("Eric", "Elena", "Java");
+
+        assertThat(ParallelMatch.anyMatch(names, name -> name.contains("J")).getResult(),
+                equalTo(names.stream().anyMatch(name -> name.contains("J"))));
+        assertThat(ParallelMatch.allMatch(names, name -> name.length() > 3).getResult(),
+                equalTo(names.stream().allMatch(name -> name.length() > 3)));
+        assertThat(ParallelMatch.noneMatch(names, name -> name.endsWith("S"), 100).getResult(),
+                equalTo(names.stream().noneMatch(name -> name.endsWith("S"))));
+        assertThat(ParallelMatch.findFirst(names, name -> name.startsWith("E")).getValue(),
+                equalTo(names.stream().filter(name -> name.startsWith("E")).findFirst()));
+
+        ParallelMatch.Match<String> counterexample = ParallelMatch.allMatch(names, name -> name.startsWith("E"));
+        assertThat(counterexample.getResult(), equalTo(false));
+        assertThat(counterexample.getValue(), equalTo(Optional.of("Java")));
+        assertThat(ParallelMatch.findFirst(Collections.<String>emptyList(), name -> true).getResult(), equalTo(false));
+    }
+
+    @Test
+    void findFirstIsTheFirst() {
+        List<Integer> numbers = IntStream.range(0, 200_000).boxed().collect(Collectors.toList());
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            Set<Integer> matches = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                matches.add(random.nextInt(numbers.size()));
+            }
+            ParallelMatch.Match<Integer> match = ParallelMatch.findFirst(numbers, matches::contains, 10);
+            assertThat(match.getValue(), equalTo(numbers.parallelStream().filter(matches::contains).findFirst()));
+            assertThat(match.getIndex(), equalTo(Collections.min(matches)));
+        }
+        assertThat(ParallelMatch.findFirst(new LinkedList<>(numbers), n -> n == 77).getIndex(), equalTo(77));
+    }
+
+    @Test
+    void stopsEarlyAndReportsWaste() {
+        List<Integer> numbers = IntStream.range(0, 1_000_000).boxed().collect(Collectors.toList());
+        AtomicInteger calls = new AtomicInteger();
+
+        ParallelMatch.Match<Integer> match = ParallelMatch.anyMatch(numbers, n -> {
+            calls.incrementAndGet();
+            return n == 1_000;
+        }, 10);
+
+        assertThat(match.getResult(), equalTo(true));
+        assertThat(match.getIndex(), equalTo(1_000));
+        assertThat(match.getEvaluated(), equalTo((long) calls.get()));
+        assertThat(match.getWasted(), equalTo(match.getEvaluated() - 1_001));
+        // at most one chunk in flight per worker after the match
+        long bound = 1_001 + (long) match.getChunkSize() * (ForkJoinPool.getCommonPoolParallelism() + 1) * 2;
+        assertThat(match.getEvaluated(), lessThanOrEqualTo(bound));
+
+        ParallelMatch.Match<Integer> none = ParallelMatch.anyMatch(numbers, n -> n < 0);
+        assertThat(none.getResult(), equalTo(false));
+        assertThat(none.getEvaluated(), equalTo((long) numbers.size()));
+        assertThat(none.getWasted(), equalTo(0L));
+    }
+
+    @Test
+    void costHintChangesChunkSize() {
+        assertThat(ParallelMatch.chunkSize(1_000_000, 8, 1), equalTo(ParallelMatch.MAX_CHUNK));
+        assertThat(ParallelMatch.chunkSize(1_000_000, 8, 100_000), equalTo(1));
+        assertThat(ParallelMatch.chunkSize(1_000_000, 8, 1_000), equalTo(100));
+        // small lists still get several chunks per worker
+        assertThat(ParallelMatch.chunkSize(64, 8, 1), equalTo(2));
+    }
+}
@@ -0,0 +1,118 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelPipelinesTest {
+
+    @Test
+    void reduceOnDedicatedPool() {
+        try (ParallelPipelines pipelines = new ParallelPipelines("reduce", 2, 4)) {
+            Integer reducedParallel = pipelines.run("reduce", () -> Arrays.asList(1, 2, 3, 4).parallelStream()
+                    .reduce(10, Integer::sum, Integer::sum));
+            // identity is applied once per split, same as on the common pool
+            assertThat(reducedParallel, equalTo(Arrays.asList(1, 2, 3, 4).parallelStream().reduce(10, Integer::sum, Integer::sum)));
+
+            int sum = pipelines.run("range", IntStream.range(1, 10), IntStream::sum);
+            assertThat(sum, equalTo(45));
+
+            assertThat(pipelines.getStats("reduce").getRuns(), equalTo(1L));
+            assertThat(pipelines.getStats("range").getRuns(), equalTo(1L));
+            assertThat(pipelines.getStats("range").getWallNanos(), greaterThan(0L));
+        }
+    }
+
+    @Test
+    void runsOnPoolThreads() {
+        try (ParallelPipelines pipelines = new ParallelPipelines("isolated", 3, 4)) {
+            Set<String> threads = pipelines.run("threads", () -> IntStream.range(0, 10_000).parallel()
+                    .mapToObj(i -> Thread.currentThread().getName())
+                    .collect(Collectors.toSet()));
+            assertThat(threads.isEmpty(), equalTo(false));
+            for (String thread : threads) {
+                assertThat(thread, startsWith("isolated-worker-"));
+            }
+        }
+    }
+
+    @Test
+    void rejectsWhenFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try (ParallelPipelines pipelines = new ParallelPipelines("small", 1, 1)) {
+            Future<Integer> blocked = caller.submit(() -> pipelines.run("slow", () -> {
+                started.countDown();
+                await(release);
+                return 1;
+            }));
+            started.await();
+            assertThat(pipelines.getPending(), equalTo(1));
+            assertThrows(RejectedExecutionException.class, () -> pipelines.run("other", () -> 2));
+            assertThat(pipelines.getStats("other").getRejected(), equalTo(1L));
+
+            release.countDown();
+            assertThat(blocked.get(), equalTo(1));
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void saturatedCommonPoolDoesNotBlockPipelines() throws Exception {
+        ForkJoinPool common = ForkJoinPool.commonPool();
+        int blockers = common.getParallelism();
+        CountDownLatch started = new CountDownLatch(blockers);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        try (ParallelPipelines pipelines = new ParallelPipelines("isolated", 2, 4)) {
+            // every common pool worker is stuck until the release
+            for (int i = 0; i < blockers; i++) {
+                common.execute(() -> {
+                    started.countDown();
+                    await(release);
+                    finished.incrementAndGet();
+                });
+            }
+            started.await();
+
+            List<Integer> numbers = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            int sum = pipelines.run("sum", () -> numbers.parallelStream()
+                    .peek(n -> threads.add(Thread.currentThread().getName()))
+                    .reduce(0, Integer::sum, Integer::sum));
+
+            assertThat(sum, equalTo(numbers.stream().reduce(0, Integer::sum)));
+            assertThat(pipelines.getStats("sum").getRuns(), equalTo(1L));
+            assertThat(threads.isEmpty(), equalTo(false));
+            for (String thread : threads) {
+                assertThat(thread, startsWith("isolated-worker-"));
+            }
+            // the pipeline finished while the common pool was still saturated
+            assertThat(finished.get(), equalTo(0));
+        } finally {
+            release.countDown();
+        }
+        assertTrue(common.awaitQuiescence(10, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package optional;
+
+import optional.StreamTest.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PartitionedGroupingTest {
+    private final List<Product> productList = Arrays.asList(
+            new Product(23, "potatos"),
+            new Product(14, "orange"),
+            new Product(13, "lemon"),
+            new Product(23, "bread"),
+            new Product(13, "suger"));
+
+    private static List<Product> products(int size, int amounts) {
+        Random random = new Random(5);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(new Product(random.nextInt(amounts), "product-" + i));
+        }
+        return products;
+    }
+
+    @Test
+    void likeStreamTest() {
+        Map<Integer, List<Product>> grouped = PartitionedGrouping.groupingBy(productList, Product::getAmount);
+        assertThat(grouped.get(13).size(), equalTo(2));
+        assertThat(grouped.get(14).size(), equalTo(1));
+        assertThat(grouped, equalTo(productList.stream().collect(Collectors.groupingBy(Product::getAmount))));
+
+        Map<Boolean, List<Product>> partitioned = PartitionedGrouping.partitioningBy(productList, el -> el.getAmount() > 15);
+        assertThat(partitioned.get(true).size(), equalTo(2));
+        assertThat(partitioned.get(false).size(), equalTo(3));
+
+        Map<Boolean, Long> none = PartitionedGrouping.partitioningBy(productList, el -> el.getAmount() > 100, Collectors.counting());
+        assertThat(none.get(true), equalTo(0L));
+        assertThat(none.get(false), equalTo(5L));
+    }
+
+    @Test
+    void partitionsMatchGroupingBy() {
+        for (int amounts : new int[]{2, 1_000, 100_000}) {
+            List<Product> products = products(50_000, amounts);
+            Map<Integer, List<Product>> expected = products.stream().collect(Collectors.groupingBy(Product::getAmount));
+
+            Map<Integer, List<Product>> grouped = PartitionedGrouping.groupingBy(products, Product::getAmount, Collectors.toList(), 4);
+            // 2 keys are below the crossover: per chunk maps merged into one
+            assertThat(((PartitionedGrouping.PartitionedMap<?, ?>) grouped).getPartitionCount(), equalTo(amounts == 2 ? 1 : 16));
+            // lists keep encounter order
+            assertThat(grouped, equalTo(expected));
+            assertThat(grouped.keySet(), equalTo(expected.keySet()));
+
+            assertThat(PartitionedGrouping.groupingBy(products, Product::getAmount, Collectors.counting(), 4),
+                    equalTo(products.stream().collect(Collectors.groupingBy(Product::getAmount, Collectors.counting()))));
+            assertThat(PartitionedGrouping.groupingBy(products, p -> p.getAmount() % 7, Collectors.summingInt(Product::getAmount), 4),
+                    equalTo(products.stream().collect(Collectors.groupingBy(p -> p.getAmount() % 7, Collectors.summingInt(Product::getAmount)))));
+        }
+    }
+
+    @Test
+    void heavyKeyMergesChunks() {
+        // half of the rows share one key, the rest are distinct
+        List<Integer> rows = IntStream.range(0, 40_000).map(i -> i % 2 == 0 ? -1 : i).boxed().collect(Collectors.toList());
+        Map<Integer, List<Integer>> grouped = PartitionedGrouping.groupingBy(rows, i -> i, Collectors.toList(), 4);
+        assertThat(((PartitionedGrouping.PartitionedMap<?, ?>) grouped).getPartitionCount(), equalTo(1));
+        assertThat(grouped, equalTo(rows.stream().collect(Collectors.groupingBy(i -> i))));
+
+        Map<Boolean, List<Integer>> partitioned = PartitionedGrouping.partitioningBy(rows, i -> i > 20_000);
+        assertThat(partitioned, equalTo(rows.stream().collect(Collectors.partitioningBy(i -> i > 20_000))));
+    }
+
+    @Test
+    void concurrentStripes() {
+        List<Product> products = products(50_000, 10_000);
+        Map<Integer, List<Product>> grouped = PartitionedGrouping.groupingByConcurrent(products, Product::getAmount, Collectors.toList(), 4);
+        Map<Integer, List<Product>> expected = products.stream().collect(Collectors.groupingBy(Product::getAmount));
+
+        assertThat(grouped.size(), equalTo(expected.size()));
+        Function<List<Product>, Set<String>> names = list -> list.stream().map(Product::getName).collect(Collectors.toSet());
+        expected.forEach((amount, list) -> assertThat(names.apply(grouped.get(amount)), equalTo(names.apply(list))));
+
+        assertThat(PartitionedGrouping.groupingByConcurrent(products, p -> p.getAmount() & 1, Collectors.counting(), 4),
+                equalTo(products.stream().collect(Collectors.groupingBy(p -> p.getAmount() & 1, Collectors.counting()))));
+        assertThat(PartitionedGrouping.groupingByConcurrent(productList, Product::getAmount, Collectors.summingInt(Product::getAmount)),
+                equalTo(productList.stream().collect(Collectors.groupingBy(Product::getAmount, Collectors.summingInt(Product::getAmount)))));
+    }
+
+    @Test
+    void readOnlyViewAndNullKeys() {
+        List<Integer> numbers = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+        Map<Integer, Long> counts = PartitionedGrouping.groupingBy(numbers, i -> i % 10, Collectors.counting(), 4);
+        assertThat(counts.get(3), equalTo(1_000L));
+        assertThat(counts.get(10), nullValue());
+        assertThat(counts.get(null), nullValue());
+        assertThat(counts.containsKey(9), equalTo(true));
+        assertThrows(UnsupportedOperationException.class, () -> counts.put(10, 1L));
+        assertThrows(NullPointerException.class, () -> PartitionedGrouping.groupingBy(numbers, i -> i == 5 ? null : i, Collectors.counting(), 4));
+        assertThat(PartitionedGrouping.groupingBy(Collections.<Integer>emptyList(), i -> i), equalTo(Collections.emptyMap()));
+    }
+}
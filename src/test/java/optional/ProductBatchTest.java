@@ -0,0 +1,108 @@
+package optional;
+
+import optional.StreamTest.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ProductBatchTest {
+    private final List<Product> productList = Arrays.asList(
+            new Product(23, "potatos"),
+            new Product(14, "orange"),
+            new Product(13, "lemon"),
+            new Product(23, "bread"),
+            new Product(13, "suger")
+    );
+
+    private ProductBatch toBatch(List<Product> products) {
+        ProductBatch batch = new ProductBatch(2);
+        products.forEach(p -> batch.add(p.getAmount(), p.getName()));
+        return batch;
+    }
+
+    @Test
+    void columns() {
+        ProductBatch batch = toBatch(productList);
+        assertThat(batch.size(), equalTo(5));
+        assertThat(batch.amount(0), equalTo(23));
+        assertThat(batch.name(4), equalTo("suger"));
+        assertThat(batch.distinctNames(), equalTo(5));
+    }
+
+    @Test
+    void summary() {
+        IntSummaryStatistics expected = productList.stream().collect(Collectors.summarizingInt(Product::getAmount));
+        IntSummaryStatistics statistics = toBatch(productList).amountStatistics();
+
+        assertThat(statistics.getAverage(), equalTo(17.2));
+        assertThat(statistics.getCount(), equalTo(expected.getCount()));
+        assertThat(statistics.getMax(), equalTo(expected.getMax()));
+        assertThat(statistics.getMin(), equalTo(expected.getMin()));
+        assertThat(statistics.getSum(), equalTo(expected.getSum()));
+        assertThat(statistics.getAverage(), equalTo(productList.stream().collect(Collectors.averagingInt(Product::getAmount))));
+    }
+
+    @Test
+    void groupByAmount() {
+        Map<Integer, List<Product>> expected = productList.stream().collect(Collectors.groupingBy(Product::getAmount));
+        IntAggregateMap grouped = toBatch(productList).groupByAmount(0);
+
+        assertThat(grouped.size(), equalTo(expected.size()));
+        assertThat(grouped.count(13), equalTo(2L));
+        assertThat(grouped.count(14), equalTo(1L));
+        for (Map.Entry<Integer, List<Product>> entry : expected.entrySet()) {
+            assertThat(grouped.count(entry.getKey()), equalTo((long) entry.getValue().size()));
+        }
+        assertThat(grouped.containsKey(99), equalTo(false));
+    }
+
+    @Test
+    void groupByNameMatchesCollectors() {
+        Random random = new Random(7);
+        String[] names = {"potatos", "orange", "lemon", "bread", "suger"};
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            products.add(new Product(random.nextInt(1000) - 500, names[random.nextInt(names.length)]));
+        }
+        ProductBatch batch = toBatch(products);
+        IntAggregateMap grouped = batch.groupByName(3);
+
+        Map<String, IntSummaryStatistics> expected = products.stream()
+                .collect(Collectors.groupingBy(Product::getName, Collectors.summarizingInt(Product::getAmount)));
+        assertThat(grouped.size(), equalTo(expected.size()));
+        for (int nameId : grouped.keys()) {
+            String name = batch.nameOf(nameId);
+            IntSummaryStatistics statistics = expected.get(name);
+            assertThat(grouped.count(nameId), equalTo(statistics.getCount()));
+            assertThat(grouped.sum(nameId), equalTo(statistics.getSum()));
+            assertThat(grouped.min(nameId), equalTo(statistics.getMin()));
+            assertThat(grouped.max(nameId), equalTo(statistics.getMax()));
+            assertThat(grouped.average(nameId), equalTo(statistics.getAverage()));
+
+            List<Integer> top3 = products.stream()
+                    .filter(p -> p.getName().equals(name))
+                    .map(Product::getAmount)
+                    .sorted(Comparator.reverseOrder())
+                    .limit(3)
+                    .collect(Collectors.toList());
+            int[] topK = grouped.topK(nameId);
+            assertThat(Arrays.stream(topK).boxed().collect(Collectors.toList()), equalTo(top3));
+        }
+    }
+
+    @Test
+    void manyKeysRehash() {
+        IntAggregateMap map = new IntAggregateMap(1, 2);
+        for (int i = 0; i < 10_000; i++) {
+            map.add(i % 5000, i);
+        }
+        assertThat(map.size(), equalTo(5000));
+        assertThat(map.count(4999), equalTo(2L));
+        assertThat(map.sum(1), equalTo(1L + 5001L));
+        assertThat(map.topK(1)[0], equalTo(5001));
+    }
+}
@@ -0,0 +1,111 @@
+package optional;
+
+import optional.StreamTest.Product;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProductStoreTest {
+
+    private final List<Product> productList = Arrays.asList(
+            new Product(23, "potatos"),
+            new Product(14, "orange"),
+            new Product(13, "lemon"),
+            new Product(23, "bread"),
+            new Product(13, "suger"));
+
+    @Test
+    void appendAndGet() {
+        ProductStore store = new ProductStore();
+        productList.forEach(p -> store.append(p.getAmount(), p.getName()));
+
+        assertThat(store.size(), equalTo(5L));
+        assertThat(store.amount(2), equalTo(13));
+        assertThat(store.name(2), equalTo("lemon"));
+        assertThat(store.nameBytes(0).startsWith("pot".getBytes()), equalTo(true));
+        assertThat(store.amounts().sum(), equalTo(productList.stream().mapToInt(Product::getAmount).sum()));
+        assertThat(store.names().collect(Collectors.toList()),
+                equalTo(productList.stream().map(Product::getName).collect(Collectors.toList())));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.amount(5));
+    }
+
+    @Test
+    void pagesGrowWithTheData() throws IOException {
+        ProductStore small = new ProductStore();
+        small.append(1, "one");
+        assertThat(small.getOffHeapBytes(), lessThanOrEqualTo(8192L));
+
+        ProductStore store = new ProductStore();
+        for (int i = 0; i < 100_000; i++) {
+            store.append(i, "product-" + i);
+        }
+        assertThat(store.getOffHeapBytes(), lessThan(8L << 20));
+        assertThat(store.amount(99_999), equalTo(99_999));
+        assertThat(store.name(0), equalTo("product-0"));
+        assertThat(store.name(77_777), equalTo("product-77777"));
+        assertThat(store.names().parallel().filter(name -> name.endsWith("-12345")).count(), equalTo(1L));
+
+        Path file = Files.createTempFile("products", ".store");
+        try {
+            small.save(file);
+            assertThat(ProductStore.load(file).name(0), equalTo("one"));
+            store.save(file);
+            assertThat(ProductStore.load(file).names().collect(Collectors.toList()), equalTo(store.names().collect(Collectors.toList())));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void pagesAndParallelViews() {
+        // small pages so rows and names cross page boundaries
+        ProductStore store = new ProductStore(4, 6);
+        Random random = new Random(1);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String name = i % 17 == 0 ? "" : "상품-" + random.nextInt(1_000) + "-" + "x".repeat(random.nextInt(20));
+            products.add(new Product(random.nextInt(100), name));
+            store.append(products.get(i).getAmount(), name);
+        }
+
+        List<String> expected = products.stream().map(p -> p.getAmount() + ":" + p.getName()).collect(Collectors.toList());
+        assertThat(store.stream((amount, name) -> amount + ":" + name).parallel().collect(Collectors.toList()), equalTo(expected));
+        assertThat(store.amounts().parallel().summaryStatistics().getSum(),
+                equalTo(products.stream().mapToInt(Product::getAmount).summaryStatistics().getSum()));
+        assertThat(store.amounts().parallel().boxed().collect(Collectors.toList()),
+                equalTo(products.stream().map(Product::getAmount).collect(Collectors.toList())));
+        assertThat(store.name(17 * 3), equalTo(""));
+        assertThrows(IllegalArgumentException.class, () -> store.append(1, "x".repeat(65)));
+    }
+
+    @Test
+    void saveAndLoad() throws IOException {
+        ProductStore store = new ProductStore(4, 6);
+        for (int i = 0; i < 1_000; i++) {
+            store.append(i, i % 10 == 0 ? "" : "name-" + i);
+        }
+        Path file = Files.createTempFile("products", ".store");
+        try {
+            store.save(file);
+            ProductStore loaded = ProductStore.load(file);
+
+            assertThat(loaded.size(), equalTo(store.size()));
+            assertThat(loaded.names().parallel().collect(Collectors.toList()), equalTo(store.names().collect(Collectors.toList())));
+            assertThat(loaded.amounts().parallel().sum(), equalTo(store.amounts().sum()));
+            assertThrows(UnsupportedOperationException.class, () -> loaded.append(1, "more"));
+
+            Files.write(file, new byte[]{1, 2, 3});
+            assertThrows(IOException.class, () -> ProductStore.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StreamInstrumentTest {
+
+    @Test
+    void countsAndSelectivity() {
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        StreamInstrument in = new StreamInstrument("concat", sink, true, 1);
+
+        List<String> list1 = Stream.of("one", "two", "three").collect(Collectors.toList());
+        List<String> list2 = Stream.of("four", "five", "six").collect(Collectors.toList());
+        List<String> result = in.source("concat", Stream.concat(list1.stream(), list2.stream()))
+                .filter(in.filter("contains-o", s -> s.contains("o")))
+                .map(in.map("upper", String::toUpperCase))
+                .collect(Collectors.toList());
+        assertThat(result, contains("ONE", "TWO", "FOUR"));
+
+        in.publish();
+        assertThat(sink.get("concat", "concat").getOut(), equalTo(6L));
+        StreamInstrument.StageMetrics filter = sink.get("concat", "contains-o");
+        assertThat(filter.getIn(), equalTo(6L));
+        assertThat(filter.getOut(), equalTo(3L));
+        assertThat(filter.getSelectivity(), equalTo(0.5));
+        assertThat(filter.getSamples(), equalTo(6L));
+        assertThat(sink.get("concat", "upper").getIn(), equalTo(3L));
+        assertThat(sink.get("concat", "upper").getSelectivity(), equalTo(1.0));
+        assertThat(sink.getPublished(), hasSize(3));
+    }
+
+    @Test
+    void intStreamParallel() {
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        StreamInstrument in = new StreamInstrument("ints", sink, true, 16);
+
+        int sum = in.source("range", IntStream.range(0, 100_000).parallel())
+                .filter(in.intFilter("odd", i -> i % 2 == 1))
+                .map(in.intMap("double", i -> i * 2))
+                .sum();
+        assertThat(sum, equalTo(IntStream.range(0, 100_000).filter(i -> i % 2 == 1).map(i -> i * 2).sum()));
+        assertThat(in.getMetrics("range").getOut(), equalTo(100_000L));
+        assertThat(in.getMetrics("odd").getOut(), equalTo(50_000L));
+        assertThat(in.getMetrics("double").getIn(), equalTo(50_000L));
+        // 1 in 16 sampled
+        assertThat(in.getMetrics("odd").getSamples(), lessThan(50_000L));
+        assertThat(in.getMetrics("odd").getSamples(), greaterThan(0L));
+    }
+
+    @Test
+    void allocationOfStage() {
+        StreamInstrument in = new StreamInstrument("alloc", new InMemoryMetricsSink(), true, 1);
+        long count = IntStream.range(0, 1_000).boxed()
+                .map(in.map("array", i -> new long[128]))
+                .count();
+        assertThat(count, equalTo(1_000L));
+        // 128 longs per element, if the JVM exposes thread allocation counters
+        long bytes = in.getMetrics("array").getEstimatedAllocatedBytes();
+        assertThat(bytes == 0 || bytes >= 1_000L * 128 * 8, equalTo(true));
+    }
+
+    @Test
+    void estimatesKeepSubUnitAverages() {
+        // 2 ns and 1 byte over 3 samples: the per element averages are below 1
+        StreamInstrument.StageMetrics metrics = new StreamInstrument.StageMetrics("cheap", 3_000_000, 3_000_000, 3, 2, 1);
+        assertThat(metrics.getEstimatedNanos(), equalTo(2_000_000L));
+        assertThat(metrics.getEstimatedAllocatedBytes(), equalTo(1_000_000L));
+        assertThat(new StreamInstrument.StageMetrics("none", 10, 10, 0, 0, 0).getEstimatedNanos(), equalTo(0L));
+    }
+
+    @Test
+    void disabledReturnsSameFunctions() {
+        InMemoryMetricsSink sink = new InMemoryMetricsSink();
+        StreamInstrument in = new StreamInstrument("off", sink, false, 1);
+        Predicate<String> predicate = s -> s.contains("three");
+        Stream<String> stream = Stream.of("one", "three");
+
+        assertThat(in.filter("three", predicate), sameInstance(predicate));
+        assertThat(in.source("source", stream), sameInstance(stream));
+        assertThat(stream.filter(in.filter("three", predicate)).collect(Collectors.toList()), contains("three"));
+
+        in.publish();
+        assertThat(sink.getPublished(), hasSize(0));
+    }
+}
@@ -0,0 +1,334 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StreamPublisherTest {
+    // daemon workers, nothing to shut down
+    private static final Executor executor = new ForkJoinPool(4);
+
+    @Test
+    void honorsRequestN() throws InterruptedException {
+        ProbeSubscriber<Integer> subscriber = new ProbeSubscriber<>();
+        StreamPublisher.from(Stream.iterate(10, n -> n + 2), executor, 4).subscribe(subscriber);
+
+        subscriber.request(3);
+        subscriber.awaitCount(3);
+        Thread.sleep(50);
+        assertThat(subscriber.items, contains(10, 12, 14));
+
+        subscriber.request(2);
+        subscriber.awaitCount(5);
+        Thread.sleep(50);
+        assertThat(subscriber.items, contains(10, 12, 14, 16, 18));
+        subscriber.cancel();
+        subscriber.assertNoViolations();
+    }
+
+    @Test
+    void completesAndClosesFiniteSource() throws InterruptedException, IOException {
+        Path file = Files.createTempFile("publisher", ".txt");
+        try {
+            Files.write(file, Arrays.asList("Eric", "Elena", "Java"), StandardCharsets.UTF_8);
+            AtomicBoolean closed = new AtomicBoolean();
+            ProbeSubscriber<String> subscriber = new ProbeSubscriber<>();
+            StreamPublisher.from(Files.lines(file).onClose(() -> closed.set(true)), executor, 2).subscribe(subscriber);
+
+            subscriber.request(Long.MAX_VALUE);
+            subscriber.awaitTerminal();
+            assertThat(subscriber.items, contains("Eric", "Elena", "Java"));
+            assertThat(subscriber.completed, equalTo(true));
+            assertThat(closed.get(), equalTo(true));
+            subscriber.assertNoViolations();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void nonPositiveRequestSignalsError() throws InterruptedException {
+        ProbeSubscriber<String> subscriber = new ProbeSubscriber<>();
+        StreamPublisher.from(Stream.generate(() -> "gen"), executor, 4).subscribe(subscriber);
+
+        subscriber.request(0);
+        subscriber.awaitTerminal();
+        assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+        subscriber.assertNoViolations();
+    }
+
+    @Test
+    void cancelStopsAndClosesSource() throws InterruptedException {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger pulled = new AtomicInteger();
+        ProbeSubscriber<Integer> subscriber = new ProbeSubscriber<>();
+        StreamPublisher.from(Stream.generate(pulled::incrementAndGet).onClose(() -> closed.set(true)), executor, 8)
+                .subscribe(subscriber);
+
+        subscriber.request(Long.MAX_VALUE);
+        subscriber.awaitCount(100);
+        subscriber.cancel();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!closed.get() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(closed.get(), equalTo(true));
+        int afterCancel = pulled.get();
+        Thread.sleep(50);
+        assertThat(pulled.get(), equalTo(afterCancel));
+        subscriber.assertNoViolations();
+    }
+
+    @Test
+    void singleSubscriber() throws InterruptedException {
+        StreamPublisher<String> publisher = StreamPublisher.from(Stream.of("a", "b"), executor, 4);
+        publisher.subscribe(new ProbeSubscriber<>());
+        ProbeSubscriber<String> second = new ProbeSubscriber<>();
+        publisher.subscribe(second);
+
+        second.awaitTerminal();
+        assertThat(second.error, instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    void stagesMatchStream() throws InterruptedException {
+        List<String> expected = IntStream.range(0, 1_000).boxed()
+                .filter(n -> n % 3 == 0)
+                .map(n -> "n" + n)
+                .flatMap(s -> Stream.of(s, s.toUpperCase()))
+                .collect(Collectors.toList());
+
+        ProbeSubscriber<String> subscriber = new ProbeSubscriber<>();
+        StreamPublisher.from(IntStream.range(0, 1_000).boxed(), executor, 16)
+                .filter(n -> n % 3 == 0)
+                .map(n -> "n" + n)
+                .flatMap(s -> Stream.of(s, s.toUpperCase()))
+                .subscribe(subscriber);
+
+        // small, uneven requests
+        while (!subscriber.terminated()) {
+            subscriber.request(7);
+            Thread.sleep(1);
+        }
+        assertThat(subscriber.items, equalTo(expected));
+        assertThat(subscriber.completed, equalTo(true));
+        subscriber.assertNoViolations();
+    }
+
+    @Test
+    void boundedInFlight() throws InterruptedException {
+        int batchSize = 16;
+        AtomicInteger pulled = new AtomicInteger();
+        ProbeSubscriber<Integer> subscriber = new ProbeSubscriber<>();
+        StreamPublisher.from(Stream.generate(pulled::incrementAndGet), executor, batchSize)
+                .map(n -> n * 2)
+                .flatMap(n -> Stream.of(n, n))
+                .subscribe(subscriber);
+
+        subscriber.request(5);
+        subscriber.awaitCount(5);
+        Thread.sleep(100);
+        // each stage holds at most batchSize items, so a stalled subscriber stops the unbounded source
+        assertThat(pulled.get(), lessThanOrEqualTo(5 + 2 * batchSize));
+
+        subscriber.request(1_000);
+        subscriber.awaitCount(1_005);
+        Thread.sleep(100);
+        assertThat(pulled.get(), lessThanOrEqualTo(1_005 / 2 + 1 + 2 * batchSize));
+        subscriber.cancel();
+        subscriber.assertNoViolations();
+    }
+
+    @Test
+    void batches() throws InterruptedException {
+        ProbeSubscriber<List<Integer>> subscriber = new ProbeSubscriber<>();
+        StreamPublisher.batches(IntStream.range(0, 10).boxed(), 4, executor).subscribe(subscriber);
+
+        subscriber.request(Long.MAX_VALUE);
+        subscriber.awaitTerminal();
+        assertThat(subscriber.items, contains(
+                Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7), Arrays.asList(8, 9)));
+    }
+
+    @Test
+    void stageFailureCancelsUpstream() throws InterruptedException {
+        AtomicBoolean closed = new AtomicBoolean();
+        ProbeSubscriber<Integer> subscriber = new ProbeSubscriber<>();
+        StreamPublisher.from(Stream.iterate(1, n -> n + 1).onClose(() -> closed.set(true)), executor, 4)
+                .map(n -> 100 / (n - 3))
+                .subscribe(subscriber);
+
+        subscriber.request(Long.MAX_VALUE);
+        subscriber.awaitTerminal();
+        assertThat(subscriber.items, contains(-50, -100));
+        assertThat(subscriber.error, instanceOf(ArithmeticException.class));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!closed.get() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(closed.get(), equalTo(true));
+        subscriber.assertNoViolations();
+    }
+
+    @Test
+    void flatMapClosesInnerStreamOnCancelAndError() throws InterruptedException {
+        // cancelled half way through an endless inner stream
+        AtomicInteger closedOnCancel = new AtomicInteger();
+        ProbeSubscriber<Integer> cancelled = new ProbeSubscriber<>();
+        StreamPublisher.from(Stream.of(1, 2), executor, 4)
+                .flatMap(n -> Stream.iterate(n, i -> i + 1).onClose(closedOnCancel::incrementAndGet))
+                .subscribe(cancelled);
+        cancelled.request(3);
+        cancelled.awaitCount(3);
+        cancelled.cancel();
+        awaitTrue(() -> closedOnCancel.get() == 1);
+        assertThat(cancelled.items, contains(1, 2, 3));
+        cancelled.assertNoViolations();
+
+        // inner stream fails half way through
+        AtomicInteger closedOnError = new AtomicInteger();
+        ProbeSubscriber<Integer> failed = new ProbeSubscriber<>();
+        StreamPublisher.from(Stream.of(1, 2), executor, 4)
+                .flatMap(n -> Stream.iterate(3, i -> i - 1).map(i -> 6 / i).onClose(closedOnError::incrementAndGet))
+                .subscribe(failed);
+        failed.request(Long.MAX_VALUE);
+        failed.awaitTerminal();
+        assertThat(failed.items, contains(2, 3, 6));
+        assertThat(failed.error, instanceOf(ArithmeticException.class));
+        awaitTrue(() -> closedOnError.get() == 1);
+        failed.assertNoViolations();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(condition.getAsBoolean(), equalTo(true));
+    }
+
+    @Test
+    void defaultExecutor() {
+        assertThat(StreamPublisher.defaultExecutor(), notNullValue());
+        assertThat(StreamPublisher.defaultExecutor(), sameInstance(StreamPublisher.defaultExecutor()));
+    }
+
+    // checks the subscriber side rules: onSubscribe first, never more onNext than requested,
+    // signals not concurrent, nothing after onComplete / onError
+    static class ProbeSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> items = new CopyOnWriteArrayList<>();
+        final List<String> violations = new CopyOnWriteArrayList<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch terminal = new CountDownLatch(1);
+        private final AtomicBoolean inSignal = new AtomicBoolean();
+        private volatile Flow.Subscription subscription;
+        private volatile long outstanding;
+        volatile boolean completed;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null) {
+                violations.add("onSubscribe twice");
+            }
+            this.subscription = subscription;
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(T item) {
+            enter("onNext");
+            synchronized (this) {
+                if (outstanding != Long.MAX_VALUE) {
+                    outstanding--;
+                }
+                if (outstanding < 0) {
+                    violations.add("onNext without demand");
+                }
+            }
+            items.add(item);
+            exit();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            enter("onError");
+            error = throwable;
+            exit();
+            terminal.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            enter("onComplete");
+            completed = true;
+            exit();
+            terminal.countDown();
+        }
+
+        private void enter(String signal) {
+            if (subscription == null) {
+                violations.add(signal + " before onSubscribe");
+            }
+            if (terminated()) {
+                violations.add(signal + " after terminal signal");
+            }
+            if (!inSignal.compareAndSet(false, true)) {
+                violations.add("concurrent " + signal);
+            }
+        }
+
+        private void exit() {
+            inSignal.set(false);
+        }
+
+        void request(long n) throws InterruptedException {
+            assertThat(subscribed.await(5, TimeUnit.SECONDS), equalTo(true));
+            synchronized (this) {
+                if (n > 0) {
+                    outstanding = outstanding + n < 0 ? Long.MAX_VALUE : outstanding + n;
+                }
+            }
+            subscription.request(n);
+        }
+
+        void cancel() throws InterruptedException {
+            assertThat(subscribed.await(5, TimeUnit.SECONDS), equalTo(true));
+            subscription.cancel();
+        }
+
+        boolean terminated() {
+            return terminal.getCount() == 0;
+        }
+
+        void awaitCount(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (items.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(items.size(), greaterThanOrEqualTo(count));
+        }
+
+        void awaitTerminal() throws InterruptedException {
+            assertThat(terminal.await(5, TimeUnit.SECONDS), equalTo(true));
+        }
+
+        void assertNoViolations() {
+            assertThat(violations, empty());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TokenizerTest {
+
+    @Test
+    void splitting() {
+        Stream<String> stringStream = Pattern.compile(", ").splitAsStream("one, two, three");
+        Stream<CharSequence> tokens = Tokenizer.of(", ").split("one, two, three");
+
+        assertThat(tokens.map(CharSequence::toString).collect(Collectors.toList()),
+                equalTo(stringStream.collect(Collectors.toList())));
+        assertThat(Tokenizer.of(", ").isLiteral(), equalTo(true));
+        assertThat(Tokenizer.of("\\s*,\\s*").isLiteral(), equalTo(false));
+        assertThat(Tokenizer.of(", "), sameInstance(Tokenizer.of(", ")));
+    }
+
+    @Test
+    void sameAsPatternSplit() {
+        List<String> regexes = Arrays.asList(",", ", ", "::", "\\s*,\\s*", "a", "[,;]", "", "(?=b)");
+        List<String> inputs = Arrays.asList("", ",", ",,", "a", "a,b", ",a,,b,,", ",,,", ":a:b::", "a::b::::c",
+                "ab, ba ,b;a", " , , ", "bbb", "one, two, three");
+        for (String regex : regexes) {
+            Pattern pattern = Pattern.compile(regex);
+            for (String input : inputs) {
+                List<String> expected = pattern.splitAsStream(input).collect(Collectors.toList());
+                String message = "'" + regex + "' on '" + input + "'";
+
+                assertThat(message, split(Tokenizer.of(regex), input), equalTo(expected));
+                assertThat(message, split(Tokenizer.of(pattern), input), equalTo(expected));
+                // non String input goes through the CharSequence path
+                assertThat(message, split(Tokenizer.of(regex), new StringBuilder(input)), equalTo(expected));
+                if (!input.isEmpty() || !expected.isEmpty()) {
+                    assertThat(message, splitBytes(Tokenizer.of(regex), input), equalTo(expected));
+                }
+            }
+        }
+    }
+
+    @Test
+    void randomInputs() {
+        Random random = new Random(5);
+        Tokenizer literal = Tokenizer.literal(", ");
+        Pattern pattern = Pattern.compile(", ");
+        for (int round = 0; round < 2_000; round++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int i = 0; i < length; i++) {
+                input.append("a, ".charAt(random.nextInt(3)));
+            }
+            List<String> expected = Arrays.asList(pattern.split(input));
+            assertThat(input.toString(), split(literal, input.toString()), equalTo(expected));
+            assertThat(input.toString(), splitBytes(literal, input.toString()), equalTo(expected));
+        }
+    }
+
+    @Test
+    void forEachGivesOffsets() {
+        String record = "Eric,Elena,,Java,,";
+        List<String> tokens = new ArrayList<>();
+        int count = Tokenizer.of(",").forEach(record, (source, start, end) -> tokens.add(source.subSequence(start, end).toString()));
+
+        assertThat(count, equalTo(4));
+        assertThat(tokens, contains("Eric", "Elena", "", "Java"));
+    }
+
+    @Test
+    void byteBufferViews() {
+        byte[] bytes = "xx감자, orange, 레몬".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(2);
+
+        List<ByteLine> tokens = Tokenizer.of(", ").split(buffer).collect(Collectors.toList());
+        assertThat(tokens.stream().map(ByteLine::toString).collect(Collectors.toList()), contains("감자", "orange", "레몬"));
+        assertThat(buffer.position(), equalTo(2));
+
+        // views, not copies
+        bytes[bytes.length - 1] = 'X';
+        assertThat(tokens.get(1).toString(), equalTo("orange"));
+        bytes[10] = 'O';
+        assertThat(tokens.get(1).toString(), equalTo("Orange"));
+    }
+
+    private static List<String> split(Tokenizer tokenizer, CharSequence input) {
+        return tokenizer.split(input).map(CharSequence::toString).collect(Collectors.toList());
+    }
+
+    private static List<String> splitBytes(Tokenizer tokenizer, String input) {
+        return tokenizer.split(ByteBuffer.wrap(input.getBytes(StandardCharsets.US_ASCII)))
+                .map(ByteLine::toString).collect(Collectors.toList());
+    }
+}
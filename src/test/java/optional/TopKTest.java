@@ -0,0 +1,82 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TopKTest {
+    private final List<String> lang = Arrays.asList("Java", "Scala", "Groovy", "Python");
+
+    @Test
+    void sortedLimit() {
+        assertThat(TopK.sortedLimit(lang.stream(), Comparator.naturalOrder(), 2).collect(Collectors.toList()),
+                contains("Groovy", "Java"));
+        assertThat(TopK.sortedLimit(lang.stream(), Comparator.reverseOrder(), 3).collect(Collectors.toList()),
+                contains("Scala", "Python", "Java"));
+        // equal lengths keep encounter order like sorted() does
+        assertThat(TopK.sortedLimit(lang.stream(), Comparator.comparingInt(String::length), 3).collect(Collectors.toList()),
+                contains("Java", "Scala", "Groovy"));
+        assertThat(lang.stream().collect(TopK.largest(2, Comparator.comparingInt(String::length))),
+                contains("Groovy", "Python"));
+        assertThat(TopK.sortedLimit(lang.stream(), Comparator.naturalOrder(), 0).count(), equalTo(0L));
+        assertThat(TopK.sortedLimit(lang.stream(), Comparator.naturalOrder(), 10).count(), equalTo(4L));
+    }
+
+    @Test
+    void largeKGrowsWithTheData() {
+        // heaps start small, k = Integer.MAX_VALUE must not allocate k slots per split
+        List<Integer> numbers = new Random(9).ints(100_000).boxed().collect(Collectors.toList());
+        assertThat(numbers.parallelStream().collect(TopK.smallest(Integer.MAX_VALUE, Comparator.naturalOrder())),
+                equalTo(numbers.stream().sorted().collect(Collectors.toList())));
+        assertThat(Arrays.stream(TopK.largest(numbers.parallelStream().mapToInt(Integer::intValue), Integer.MAX_VALUE)).boxed().collect(Collectors.toList()),
+                equalTo(numbers.stream().sorted(Comparator.reverseOrder()).collect(Collectors.toList())));
+        assertThat(Arrays.stream(TopK.smallest(numbers.parallelStream().mapToLong(Integer::longValue), 50_000)).boxed().collect(Collectors.toList()),
+                equalTo(numbers.stream().sorted().limit(50_000).map(Integer::longValue).collect(Collectors.toList())));
+    }
+
+    @Test
+    void intAndLong() {
+        assertThat(Arrays.stream(TopK.smallest(IntStream.of(14, 11, 20, 39, 23), 3)).boxed().collect(Collectors.toList()),
+                contains(11, 14, 20));
+        assertThat(Arrays.stream(TopK.largest(IntStream.of(14, 11, 20, 39, 23), 2)).boxed().collect(Collectors.toList()),
+                contains(39, 23));
+        assertThat(Arrays.stream(TopK.smallest(LongStream.rangeClosed(1, 5).map(n -> 6 - n), 2)).boxed().collect(Collectors.toList()),
+                contains(1L, 2L));
+        assertThat(Arrays.stream(TopK.largest(LongStream.rangeClosed(1, 5), 2)).boxed().collect(Collectors.toList()),
+                contains(5L, 4L));
+    }
+
+    @Test
+    void sameAsSortedLimitSequentialAndParallel() {
+        Random random = new Random(9);
+        List<String> words = random.ints(200_000, 0, 50_000)
+                .mapToObj(i -> Integer.toString(i, 36))
+                .collect(Collectors.toList());
+        List<Comparator<String>> comparators = Arrays.asList(
+                Comparator.naturalOrder(),
+                Comparator.reverseOrder(),
+                Comparator.comparingInt(String::length),
+                (s1, s2) -> s2.length() - s1.length());
+
+        for (Comparator<String> comparator : comparators) {
+            for (int k : new int[]{1, 10, 100}) {
+                List<String> expected = words.stream().sorted(comparator).limit(k).collect(Collectors.toList());
+                assertThat(words.stream().collect(TopK.smallest(k, comparator)), equalTo(expected));
+                assertThat(words.parallelStream().collect(TopK.smallest(k, comparator)), equalTo(expected));
+            }
+        }
+
+        int[] numbers = random.ints(1_000_000).toArray();
+        int[] expected = Arrays.stream(numbers).sorted().limit(100).toArray();
+        assertThat(Arrays.equals(TopK.smallest(Arrays.stream(numbers).parallel(), 100), expected), equalTo(true));
+        long[] longs = random.longs(1_000_000).toArray();
+        long[] expectedLongs = Arrays.stream(longs).boxed().sorted(Comparator.reverseOrder()).limit(100).mapToLong(Long::longValue).toArray();
+        assertThat(Arrays.equals(TopK.largest(Arrays.stream(longs).parallel(), 100), expectedLongs), equalTo(true));
+    }
+}
@@ -0,0 +1,106 @@
+package optional;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class WindowAggregatorTest {
+
+    @Test
+    void tumblingOverGenerate() {
+        WindowAggregator<String, String> aggregator =
+                WindowAggregator.countWindows(5, 5, s -> s, String::length);
+
+        // no limit() on the source, only on the windows
+        List<WindowAggregator.Window<String>> windows = aggregator.windows(Stream.generate(() -> "gen"))
+                .limit(3)
+                .collect(Collectors.toList());
+
+        assertThat(windows, hasSize(3));
+        for (int i = 0; i < 3; i++) {
+            WindowAggregator.Window<String> window = windows.get(i);
+            assertThat(window.getStart(), equalTo(i * 5L));
+            assertThat(window.getEnd(), equalTo(i * 5L + 5));
+            assertThat(window.getGroups().get("gen").getCount(), equalTo(5L));
+            assertThat(window.getGroups().get("gen").getSum(), equalTo(15L));
+        }
+    }
+
+    @Test
+    void slidingOverIterateMatchesBruteForce() {
+        int size = 6;
+        int slide = 4;
+        WindowAggregator<Integer, Integer> aggregator =
+                WindowAggregator.countWindows(size, slide, n -> n % 3, n -> n);
+
+        List<WindowAggregator.Window<Integer>> windows = aggregator.windows(Stream.iterate(10, n -> n + 2))
+                .limit(50)
+                .collect(Collectors.toList());
+
+        List<Integer> elements = Stream.iterate(10, n -> n + 2).limit(50 * slide + size).collect(Collectors.toList());
+        for (int w = 0; w < windows.size(); w++) {
+            List<Integer> slice = elements.subList(w * slide, w * slide + size);
+            Map<Integer, IntSummaryStatistics> expected = slice.stream()
+                    .collect(Collectors.groupingBy(n -> n % 3, Collectors.summarizingInt(n -> n)));
+            Map<Integer, IntSummaryStatistics> actual = windows.get(w).getGroups();
+            assertThat(actual.keySet(), equalTo(expected.keySet()));
+            expected.forEach((key, statistics) -> {
+                assertThat(actual.get(key).getCount(), equalTo(statistics.getCount()));
+                assertThat(actual.get(key).getSum(), equalTo(statistics.getSum()));
+                assertThat(actual.get(key).getMin(), equalTo(statistics.getMin()));
+                assertThat(actual.get(key).getMax(), equalTo(statistics.getMax()));
+            });
+            assertThat(windows.get(w).getTotal().getCount(), equalTo((long) size));
+        }
+    }
+
+    @Test
+    void boundedPanes() {
+        WindowAggregator<Integer, Integer> aggregator =
+                WindowAggregator.countWindows(1000, 10, n -> n % 7, n -> n);
+        List<WindowAggregator.Window<Integer>> emitted = new ArrayList<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            aggregator.accept(i, emitted::add);
+            assertThat(aggregator.getPaneCount() <= 1000 / 10 + 1, equalTo(true));
+            if (emitted.size() > 10) emitted.clear();
+        }
+    }
+
+    @Test
+    void timeWindowsWithClock() {
+        AtomicLong now = new AtomicLong(1_000);
+        WindowAggregator<String, Integer> aggregator = WindowAggregator.timeWindows(
+                Duration.ofSeconds(10), Duration.ofSeconds(5), now::get, String::length, String::length);
+        List<WindowAggregator.Window<Integer>> emitted = new ArrayList<>();
+
+        aggregator.accept("Eric", emitted::add);   // t=0s
+        now.addAndGet(3_000);
+        aggregator.accept("Elena", emitted::add);  // t=3s
+        now.addAndGet(4_000);
+        aggregator.accept("Java", emitted::add);   // t=7s
+        assertThat(emitted, hasSize(0));
+
+        now.addAndGet(4_000);                      // t=11s, [0s, 10s) closed
+        aggregator.advance(emitted::add);
+        assertThat(emitted, hasSize(1));
+        WindowAggregator.Window<Integer> first = emitted.get(0);
+        assertThat(first.getEnd(), equalTo(10_000L));
+        assertThat(first.getGroups().get(4).getCount(), equalTo(2L));
+        assertThat(first.getGroups().get(5).getCount(), equalTo(1L));
+
+        now.addAndGet(5_000);                      // t=16s, [5s, 15s) closed
+        aggregator.accept("Scala", emitted::add);
+        assertThat(emitted, hasSize(2));
+        WindowAggregator.Window<Integer> second = emitted.get(1);
+        assertThat(second.getStart(), equalTo(5_000L));
+        assertThat(second.getGroups().keySet(), contains(4));
+        assertThat(second.getTotal().getCount(), equalTo(1L));
+    }
+}